@@ -0,0 +1,225 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.DependencyOptions;
+import org.gwtproject.j2cl.mojo.options.Gwt3Options;
+
+/**
+ * <code>Gwt3Options</code> of the benchmarks, with the defaults of the mojos, working inside the given directory.
+ * <p>
+ * The libraries of the fixture (<code>jre.jar</code>, <code>bootstrap.js.zip</code>, ...) are looked for inside
+ * <b>libDir</b>, i.e. the <code>j2cl.benchmark.libDir</code> system property, and only the ones found are used.
+ */
+class BenchmarkOptions implements Gwt3Options {
+
+    private final Path workDir;
+    private final List<String> sourceDirs;
+    private final File libDir;
+    private final List<String> bytecodeClasspath = new ArrayList<>();
+    private final List<String> j2clClasspath = new ArrayList<>();
+    int moduleThreads = 0;
+    int transpileThreads = 1;
+    boolean pipelineStages = false;
+    int transpileCacheSize = 512;
+
+    BenchmarkOptions(Path workDir, List<String> sourceDirs, File libDir) {
+        this.workDir = workDir;
+        this.sourceDirs = sourceDirs;
+        this.libDir = libDir;
+        addIfPresent(bytecodeClasspath, "jre.jar");
+        addIfPresent(bytecodeClasspath, "gwt-internal-annotations.jar");
+        addIfPresent(j2clClasspath, "bootstrap.js.zip");
+        addIfPresent(j2clClasspath, "jre.js.zip");
+    }
+
+    /**
+     * Returns the directory of the fixture libraries, i.e. the <code>j2cl.benchmark.libDir</code> system property,
+     * set by the <code>benchmarks</code> profile
+     * @return
+     */
+    static File getLibDir() {
+        return new File(System.getProperty("j2cl.benchmark.libDir", "target/benchmark-lib"));
+    }
+
+    /**
+     * Returns <code>true</code> if all the libraries needed to compile, transpile and bundle are in <b>libDir</b>
+     * @return
+     */
+    boolean hasFixtureLibraries() {
+        return bytecodeClasspath.size() == 2 && j2clClasspath.size() == 2;
+    }
+
+    @Override
+    public String getIntermediateJsPath() {
+        return workDir.resolve("js-sources").toString();
+    }
+
+    @Override
+    public File getClassesDir() {
+        return workDir.resolve("classes").toFile();
+    }
+
+    @Override
+    public boolean isDeclareLegacyNamespaces() {
+        return false;
+    }
+
+    @Override
+    public List<String> getBytecodeClasspath() {
+        return bytecodeClasspath;
+    }
+
+    @Override
+    public File getBootstrapClasspath() {
+        return new File(libDir, "javac-bootstrap-classpath.jar");
+    }
+
+    @Override
+    public String getJsOutputFile() {
+        return getOutputJsPathDir() + "/" + getOutputJsFilename();
+    }
+
+    @Override
+    public List<String> getEntrypoint() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<String> getDefine() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<String> getExterns() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public String getLanguageOut() {
+        return "ECMASCRIPT5";
+    }
+
+    @Override
+    public String getCompilationLevel() {
+        return "BUNDLE";
+    }
+
+    @Override
+    public DependencyOptions.DependencyMode getDependencyMode() {
+        return DependencyOptions.DependencyMode.NONE;
+    }
+
+    @Override
+    public List<String> getJ2clClasspath() {
+        return j2clClasspath;
+    }
+
+    @Override
+    public List<String> getSourceDir() {
+        return sourceDirs;
+    }
+
+    @Override
+    public String getJsZipCacheDir() {
+        return workDir.resolve("jsZipCache").toString();
+    }
+
+    @Override
+    public CompilerOptions getCompilerOptions() {
+        CompilerOptions options = new CompilerOptions();
+        options.setApplyInputSourceMaps(true);
+        return options;
+    }
+
+    @Override
+    public String getOutputJsPathDir() {
+        return workDir.resolve("js").toString();
+    }
+
+    @Override
+    public String getOutputJsFilename() {
+        return "benchmark.js";
+    }
+
+    @Override
+    public boolean getRecompileIfFilesChanged() {
+        return true;
+    }
+
+    @Override
+    public int getDependencyThreads() {
+        return 1;
+    }
+
+    @Override
+    public int getModuleThreads() {
+        return moduleThreads;
+    }
+
+    @Override
+    public int getTranspileThreads() {
+        return transpileThreads;
+    }
+
+    @Override
+    public boolean isPipelineStages() {
+        return pipelineStages;
+    }
+
+    @Override
+    public boolean isPollForChanges() {
+        return false;
+    }
+
+    @Override
+    public int getWatchDebounceMillis() {
+        return 50;
+    }
+
+    @Override
+    public int getTranspileCacheSize() {
+        return transpileCacheSize;
+    }
+
+    @Override
+    public int getJsZipCacheSize() {
+        return 4096;
+    }
+
+    @Override
+    public String getRemoteCacheUrl() {
+        return null;
+    }
+
+    @Override
+    public boolean isRemoteCachePush() {
+        return false;
+    }
+
+    @Override
+    public boolean isRetryFailedDependencies() {
+        return false;
+    }
+
+    @Override
+    public boolean isStoredJsZips() {
+        return false;
+    }
+
+    @Override
+    public boolean isCacheClasspathListings() {
+        return true;
+    }
+
+    private void addIfPresent(List<String> toPopulate, String fileName) {
+        File file = new File(libDir, fileName);
+        if (file.isFile()) {
+            toPopulate.add(file.getAbsolutePath());
+        }
+    }
+}
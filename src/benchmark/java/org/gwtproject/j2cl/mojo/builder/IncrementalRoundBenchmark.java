@@ -0,0 +1,118 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.j2cl.common.FrontendUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end incremental rounds (javac, J2CL and closure) over a {@link SyntheticReactor}, i.e. a scaled-up
+ * <code>src/test/projects/build</code>: each invocation changes one class, either of the last module (nothing
+ * downstream) or of the first one (the whole reactor downstream), and runs the round the watcher would run.
+ * <p>
+ * They need the fixture libraries, copied by the <code>benchmarks</code> profile from the local repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class IncrementalRoundBenchmark {
+
+    @Param({"5"})
+    public int modules;
+
+    @Param({"100"})
+    public int classes;
+
+    /**
+     * <code>leaf</code> to change a class of the last module, <code>root</code> one of the first module
+     */
+    @Param({"leaf", "root"})
+    public String changed;
+
+    /**
+     * <code>true</code> to change the signature of the class, and not only its body
+     */
+    @Param({"false", "true"})
+    public boolean signature;
+
+    @Param({"0"})
+    public int moduleThreads;
+
+    @Param({"1"})
+    public int transpileThreads;
+
+    private SyntheticReactor reactor;
+    private File targetPath;
+    private List<FrontendUtils.FileInfo> modifiedJavaFiles;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path workDir = Files.createTempDirectory("j2cl-benchmark");
+        reactor = SyntheticReactor.generate(workDir.resolve("reactor"), modules, classes);
+        BenchmarkOptions options = new BenchmarkOptions(workDir, reactor.getSourceDirs(), BenchmarkOptions.getLibDir());
+        if (!options.hasFixtureLibraries()) {
+            reactor.delete();
+            throw new IllegalStateException("Fixture libraries not found in " + BenchmarkOptions.getLibDir() + ", run with -Pbenchmarks");
+        }
+        options.moduleThreads = moduleThreads;
+        options.transpileThreads = transpileThreads;
+        targetPath = Files.createDirectories(workDir.resolve("target")).toFile();
+        SingleCompiler.setup(options, new ArrayList<>(reactor.getClasspath()), Collections.emptyMap(), targetPath, reactor.getBaseDirProjectMap());
+        // the first, full, round
+        round(SingleCompiler.getModifiedJavaFiles(FileTime.fromMillis(0)));
+    }
+
+    @Setup(Level.Invocation)
+    public void change() throws Exception {
+        int module = "root".equals(changed) ? 0 : reactor.getModuleCount() - 1;
+        // a different class each time, so that the transpile cache does not hide the work
+        int index = revision++ % reactor.getClassCount();
+        String path = reactor.touch(module, index, signature).toString();
+        modifiedJavaFiles = Collections.singletonList(FrontendUtils.FileInfo.create(path, path));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reactor.delete();
+    }
+
+    @Benchmark
+    public void incrementalRound() throws Exception {
+        round(modifiedJavaFiles);
+    }
+
+    private void round(List<FrontendUtils.FileInfo> modifiedJavaFiles) throws Exception {
+        boolean succeeded = false;
+        SingleCompiler.startRound();
+        try {
+            SingleCompiler.preCompile(modifiedJavaFiles, targetPath);
+            SingleCompiler.closure();
+            succeeded = true;
+        } finally {
+            SingleCompiler.endRound(succeeded);
+        }
+    }
+}
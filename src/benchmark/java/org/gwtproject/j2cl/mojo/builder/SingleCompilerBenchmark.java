@@ -0,0 +1,164 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.j2cl.common.FrontendUtils;
+import com.google.javascript.jscomp.PersistentInputStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the <code>SingleCompiler</code> phases run on every round before javac, over a
+ * {@link SyntheticReactor}: the source tree scan, the plain js copy, the hashing of the js files into the
+ * <code>PersistentInputStore</code> and the computation of the sources to recompile.
+ * <p>
+ * They need the fixture libraries, copied by the <code>benchmarks</code> profile from the local repository, since
+ * <code>SingleCompiler</code> is set up as for a real build (bootstrap classpath and transpiled dependencies
+ * included) before measuring these phases alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SingleCompilerBenchmark {
+
+    private static final int JS_FILES_PER_CLASS = 3;
+    private static final int JS_FILE_SIZE = 2048;
+
+    @Param({"10"})
+    public int modules;
+
+    @Param({"500"})
+    public int classes;
+
+    /**
+     * The number of js files changed before each <code>refreshPersistentInputStore</code>
+     */
+    @Param({"0", "100"})
+    public int changedJsFiles;
+
+    private SyntheticReactor reactor;
+    private PersistentInputStore persistentInputStore;
+    private String intermediateJsPath;
+    private List<Path> jsFiles;
+    private FileTime setupTime;
+    private List<FrontendUtils.FileInfo> modifiedJavaFiles;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path workDir = Files.createTempDirectory("j2cl-benchmark");
+        reactor = SyntheticReactor.generate(workDir.resolve("reactor"), modules, classes);
+        BenchmarkOptions options = new BenchmarkOptions(workDir, reactor.getSourceDirs(), BenchmarkOptions.getLibDir());
+        if (!options.hasFixtureLibraries()) {
+            reactor.delete();
+            throw new IllegalStateException("Fixture libraries not found in " + BenchmarkOptions.getLibDir() + ", run with -Pbenchmarks");
+        }
+        Path targetPath = Files.createDirectories(workDir.resolve("target"));
+        SingleCompiler.setup(options, new ArrayList<>(reactor.getClasspath()), Collections.emptyMap(), targetPath.toFile(), reactor.getBaseDirProjectMap());
+        // what J2CL would have written, about the size of the output of a small class
+        intermediateJsPath = options.getIntermediateJsPath();
+        jsFiles = new ArrayList<>();
+        for (int module = 0; module < modules; module++) {
+            for (int index = 0; index < classes; index++) {
+                for (int file = 0; file < JS_FILES_PER_CLASS; file++) {
+                    Path jsFile = Paths.get(intermediateJsPath, "bench", "module" + module, "Class" + index + "." + file + ".js");
+                    Files.createDirectories(jsFile.getParent());
+                    Files.write(jsFile, getJsContent(jsFile.toString()));
+                    jsFiles.add(jsFile);
+                }
+            }
+        }
+        persistentInputStore = new PersistentInputStore();
+        SingleCompiler.refreshPersistentInputStore(persistentInputStore, intermediateJsPath);
+        setupTime = FileTime.fromMillis(System.currentTimeMillis());
+        String modifiedPath = reactor.getSourcePath(modules - 1, 0).toString();
+        modifiedJavaFiles = Collections.singletonList(FrontendUtils.FileInfo.create(modifiedPath, modifiedPath));
+    }
+
+    @Setup(Level.Invocation)
+    public void changeJsFiles() throws IOException {
+        revision++;
+        for (int i = 0; i < changedJsFiles; i++) {
+            Path jsFile = jsFiles.get((revision * changedJsFiles + i) % jsFiles.size());
+            Files.write(jsFile, getJsContent(jsFile + " " + revision));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reactor.delete();
+    }
+
+    /**
+     * Scan of the whole source tree, finding all the sources
+     */
+    @Benchmark
+    public List<FrontendUtils.FileInfo> getModifiedJavaFilesAll() throws IOException {
+        return SingleCompiler.getModifiedJavaFiles(FileTime.fromMillis(0));
+    }
+
+    /**
+     * Scan of the whole source tree, finding nothing changed (i.e. a polling round)
+     */
+    @Benchmark
+    public List<FrontendUtils.FileInfo> getModifiedJavaFilesNone() throws IOException {
+        return SingleCompiler.getModifiedJavaFiles(setupTime);
+    }
+
+    /**
+     * Copy of the plain js files, all of them already up to date
+     */
+    @Benchmark
+    public void copyJs() throws IOException {
+        SingleCompiler.copyJs(Collections.emptyList());
+    }
+
+    /**
+     * Hashing of the js files into the <code>PersistentInputStore</code>, <b>changedJsFiles</b> of them changed
+     */
+    @Benchmark
+    public void refreshPersistentInputStore() throws IOException {
+        SingleCompiler.refreshPersistentInputStore(persistentInputStore, intermediateJsPath);
+    }
+
+    /**
+     * Sources to recompile after the change of a class of the last module, without a dependency index (i.e. the
+     * whole module)
+     */
+    @Benchmark
+    public List<FrontendUtils.FileInfo> getAllSourcesToRecompile() {
+        return SingleCompiler.getAllSourcesToRecompile(modifiedJavaFiles);
+    }
+
+    private static byte[] getJsContent(String seed) {
+        StringBuilder toReturn = new StringBuilder("/* " + seed + " */\n");
+        int line = 0;
+        while (toReturn.length() < JS_FILE_SIZE) {
+            toReturn.append("  let $v").append(line).append(" = $Util.$makeLambdaFunction(function() { return ").append(line++).append("; });\n");
+        }
+        return toReturn.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
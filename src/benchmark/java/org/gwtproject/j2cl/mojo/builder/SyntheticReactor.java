@@ -0,0 +1,177 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Generated reactor of <b>modules</b> modules with <b>classes</b> classes each, every module depending on the
+ * previous one, and every class referencing the class with the same index in the previous module, so that changes
+ * in the first module ripple through the whole reactor.
+ * <p>
+ * Classes are grouped in packages of {@link #CLASSES_PER_PACKAGE}, each package with a plain js file.
+ */
+class SyntheticReactor {
+
+    static final int CLASSES_PER_PACKAGE = 20;
+
+    private static final String GROUP_ID = "org.gwtproject.j2cl.benchmark";
+    private static final String VERSION = "1.0";
+
+    private final Path root;
+    private final int classes;
+    private final List<MavenProject> modules = new ArrayList<>();
+    private final Map<String, MavenProject> baseDirProjectMap = new HashMap<>();
+    private final List<String> sourceDirs = new ArrayList<>();
+    private int revision;
+
+    private SyntheticReactor(Path root, int classes) {
+        this.root = root;
+        this.classes = classes;
+    }
+
+    /**
+     * Generate the reactor inside the given directory
+     * @param root
+     * @param modules
+     * @param classes the number of classes of each module
+     * @return
+     * @throws IOException
+     */
+    static SyntheticReactor generate(Path root, int modules, int classes) throws IOException {
+        SyntheticReactor toReturn = new SyntheticReactor(root, classes);
+        Set<Artifact> upstreamArtifacts = new LinkedHashSet<>();
+        for (int module = 0; module < modules; module++) {
+            Path moduleDir = root.resolve(getArtifactId(module));
+            Path sourceDir = moduleDir.resolve("src/main/java");
+            for (int index = 0; index < classes; index++) {
+                toReturn.writeClass(module, index, false);
+                if (index % CLASSES_PER_PACKAGE == 0) {
+                    Path js = toReturn.getSourcePath(module, index).resolveSibling("util.js");
+                    Files.write(js, ("goog.module('" + getPackage(module, index) + ".util');\nexports.value = " + index + ";\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            MavenProject mavenProject = new MavenProject();
+            mavenProject.setGroupId(GROUP_ID);
+            mavenProject.setArtifactId(getArtifactId(module));
+            mavenProject.setVersion(VERSION);
+            mavenProject.getBuild().setDirectory(moduleDir.resolve("target").toString());
+            mavenProject.addCompileSourceRoot(sourceDir.toString());
+            mavenProject.setArtifact(createArtifact(module));
+            // the artifacts of a project are the transitive ones
+            mavenProject.setArtifacts(new LinkedHashSet<>(upstreamArtifacts));
+            upstreamArtifacts.add(mavenProject.getArtifact());
+            toReturn.modules.add(mavenProject);
+            toReturn.baseDirProjectMap.put(sourceDir.toString(), mavenProject);
+            toReturn.sourceDirs.add(sourceDir.toString());
+        }
+        return toReturn;
+    }
+
+    /**
+     * Rewrite the given class, changing either its body or its signature (i.e. its ABI, so that the classes
+     * referencing it are compiled again)
+     * @param module
+     * @param index
+     * @param signature
+     * @return the path of the class
+     * @throws IOException
+     */
+    Path touch(int module, int index, boolean signature) throws IOException {
+        revision++;
+        Path toReturn = writeClass(module, index, signature);
+        // make the change visible even on file systems with a coarse timestamp resolution
+        Files.setLastModifiedTime(toReturn, FileTime.fromMillis(System.currentTimeMillis() + 1000L * revision));
+        return toReturn;
+    }
+
+    /**
+     * Delete the whole reactor, with the outputs written inside it
+     */
+    void delete() {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // best effort, it is a temporary directory
+        }
+    }
+
+    Path getSourcePath(int module, int index) {
+        return root.resolve(getArtifactId(module)).resolve("src/main/java")
+                .resolve(getPackage(module, index).replace('.', File.separatorChar))
+                .resolve("Class" + index + ".java");
+    }
+
+    Map<String, MavenProject> getBaseDirProjectMap() {
+        return baseDirProjectMap;
+    }
+
+    List<String> getSourceDirs() {
+        return sourceDirs;
+    }
+
+    List<File> getClasspath() {
+        List<File> toReturn = new ArrayList<>();
+        sourceDirs.forEach(sourceDir -> toReturn.add(new File(sourceDir)));
+        return toReturn;
+    }
+
+    int getModuleCount() {
+        return modules.size();
+    }
+
+    int getClassCount() {
+        return classes;
+    }
+
+    private Path writeClass(int module, int index, boolean signature) throws IOException {
+        Path path = getSourcePath(module, index);
+        Files.createDirectories(path.getParent());
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(getPackage(module, index)).append(";\n\n");
+        source.append("public class Class").append(index).append(" {\n\n");
+        if (module > 0) {
+            source.append("    private final ").append(getPackage(module - 1, index)).append(".Class").append(index)
+                    .append(" upstream = new ").append(getPackage(module - 1, index)).append(".Class").append(index).append("();\n\n");
+        }
+        source.append("    public int value() {\n");
+        source.append("        return ").append(index + revision).append(module > 0 ? " + upstream.value()" : "").append(";\n");
+        source.append("    }\n");
+        if (signature) {
+            source.append("\n    public int value").append(revision).append("() {\n");
+            source.append("        return value();\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        Files.write(path, source.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static String getArtifactId(int module) {
+        return "module" + module;
+    }
+
+    private static String getPackage(int module, int index) {
+        return "bench.module" + module + ".p" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    private static Artifact createArtifact(int module) {
+        return new DefaultArtifact(GROUP_ID, getArtifactId(module), VERSION, Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar"));
+    }
+}
@@ -2,6 +2,7 @@ package org.gwtproject.j2cl.mojo;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,13 +80,15 @@ public abstract class AbstractBuilderRunnerMojo extends AbstractJ2CLMojo impleme
             // We need to remove from bytecodeClasspath the jars of the modules transpiled, so that at each recompilation the updated version is used, and not the original jar
             bytecodeClasspath = cleanClassPath(artifacts, bytecodeClasspath);
             getLog().info("cleaned bytecodeClasspath " + bytecodeClasspath);
-            // TODO There must be one specific classpath for each module, i.e. create one every time a specific module is built -> propagate to singlecompiler
+            // with moduleThreads > 0 each reactor module gets its own classpath, see ModuleCompiler; this one is shared by J2CL and closure
             final List<File> orderedClasspath = DependencyBuilder.getOrderedClasspath(session, dependencyGraphBuilder, project, reactorProjects, null);
             getLog().info("orderedClasspath " + orderedClasspath);
+            // the dependency graph is only needed to transpile the dependencies in parallel
+            final Map<File, Set<File>> dependencyGraph = getDependencyThreads() > 1 ? DependencyBuilder.getDependencyGraph(session, dependencyGraphBuilder, project, reactorProjects, null) : Collections.emptyMap();
             final Map<String, MavenProject> baseDirProjectMap = new HashMap<>();
             reactorProjects.forEach(mavenProject -> mavenProject.getCompileSourceRoots().forEach(sourceRoot -> baseDirProjectMap.put(sourceRoot, mavenProject)));
             project.getCompileSourceRoots().forEach(sourceRoot -> baseDirProjectMap.put(sourceRoot, project));
-            internalExecute(orderedClasspath, workingDirs.get(targetPath), baseDirProjectMap);
+            internalExecute(orderedClasspath, dependencyGraph, workingDirs.get(targetPath), baseDirProjectMap);
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e.getMessage());
@@ -177,6 +180,71 @@ public abstract class AbstractBuilderRunnerMojo extends AbstractJ2CLMojo impleme
         return recompileIfFilesChanged;
     }
 
+    @Override
+    public int getDependencyThreads() {
+        return dependencyThreads;
+    }
+
+    @Override
+    public int getModuleThreads() {
+        return moduleThreads;
+    }
+
+    @Override
+    public int getTranspileThreads() {
+        return transpileThreads;
+    }
+
+    @Override
+    public boolean isPipelineStages() {
+        return pipelineStages;
+    }
+
+    @Override
+    public boolean isPollForChanges() {
+        return pollForChanges;
+    }
+
+    @Override
+    public int getWatchDebounceMillis() {
+        return watchDebounceMillis;
+    }
+
+    @Override
+    public int getTranspileCacheSize() {
+        return transpileCacheSize;
+    }
+
+    @Override
+    public int getJsZipCacheSize() {
+        return jsZipCacheSize;
+    }
+
+    @Override
+    public String getRemoteCacheUrl() {
+        return remoteCacheUrl;
+    }
+
+    @Override
+    public boolean isRemoteCachePush() {
+        return remoteCachePush;
+    }
+
+    @Override
+    public boolean isRetryFailedDependencies() {
+        return retryFailedDependencies;
+    }
+
+    @Override
+    public boolean isStoredJsZips() {
+        return storedJsZips;
+    }
+
+    @Override
+    public boolean isCacheClasspathListings() {
+        return cacheClasspathListings;
+    }
+
 
     @Override
     public CompilerOptions getCompilerOptions() {
@@ -192,7 +260,7 @@ public abstract class AbstractBuilderRunnerMojo extends AbstractJ2CLMojo impleme
         return outputJsPathDir;
     }
 
-    protected abstract void internalExecute(List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws MojoExecutionException;
+    protected abstract void internalExecute(List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws MojoExecutionException;
 
     protected void createWorkingDirs() throws MojoExecutionException {
         final Map<String, File> workingDirs = getWorkingDirs();
@@ -51,8 +51,12 @@ public abstract class AbstractJ2CLMojo extends AbstractMojo {
                 usage = "one or more entrypoints to start the app with, from either java or js", */required = true)
     protected List<String> entrypoint = new ArrayList<>();
 
-    @Parameter(name = "jsZipCacheDir", /*usage = "directory to cache generated jszips in. Should be " +
-                "cleared when j2cl version changes", */required = true, defaultValue = "${project.basedir}/jsZipCache")
+    /**
+     * Directory to cache generated jszips in; entries built with a different J2CL or Closure version (or a rebuild
+     * of the same snapshot) are kept in their own directory, and only removed by the least recently used eviction
+     * bounded by jsZipCacheSize
+     */
+    @Parameter(name = "jsZipCacheDir", required = true, defaultValue = "${project.basedir}/jsZipCache")
     protected String jsZipCacheDir;
 
     //lifted straight from closure for consistency
@@ -158,6 +162,94 @@ public abstract class AbstractJ2CLMojo extends AbstractMojo {
     @Parameter(name = "recompileIfFilesChanged")
     protected boolean recompileIfFilesChanged = true;
 
+    /**
+     * Number of threads used to pre-transpile the dependencies; 1 means one jar after the other. Greater values run
+     * J2CL concurrently inside the same JVM, which J2CL does not document as safe
+     */
+    @Parameter(name = "dependencyThreads", defaultValue = "1")
+    protected int dependencyThreads = 1;
+
+    /**
+     * Number of threads used to compile the reactor modules one by one; 0 means all the sources are compiled together
+     */
+    @Parameter(name = "moduleThreads", defaultValue = "0")
+    protected int moduleThreads = 0;
+
+    /**
+     * Number of threads used to transpile the project sources; 1 means all of them in a single J2CL run. Greater
+     * values run J2CL concurrently inside the same JVM, which J2CL does not document as safe
+     */
+    @Parameter(name = "transpileThreads", defaultValue = "1")
+    protected int transpileThreads = 1;
+
+    /**
+     * Transpile each module as soon as it is compiled, while javac goes on with the other ones; only used when
+     * <code>moduleThreads</code> is greater than 0
+     */
+    @Parameter(name = "pipelineStages", defaultValue = "false")
+    protected boolean pipelineStages = false;
+
+    /**
+     * Poll the source directories for changes instead of watching them (e.g. if file watching does not work on
+     * the current file system)
+     */
+    @Parameter(name = "pollForChanges")
+    protected boolean pollForChanges = false;
+
+    /**
+     * Milliseconds to wait for further file events after a change, before starting the compilation
+     */
+    @Parameter(name = "watchDebounceMillis", defaultValue = "50")
+    protected int watchDebounceMillis = 50;
+
+    /**
+     * Maximum size, in megabytes, of the cache of the compiled and transpiled project sources, kept inside
+     * jsZipCacheDir across builds; 0 to disable it
+     */
+    @Parameter(name = "transpileCacheSize", defaultValue = "512")
+    protected int transpileCacheSize = 512;
+
+    /**
+     * Maximum size, in megabytes, of the transpiled dependencies kept in jsZipCacheDir, by all the J2CL and Closure
+     * versions sharing it, the least recently used ones being deleted first; 0 means unbounded
+     */
+    @Parameter(name = "jsZipCacheSize", defaultValue = "4096")
+    protected int jsZipCacheSize = 4096;
+
+    /**
+     * Url of a remote cache of the transpiled dependencies, shared by several machines: entries are downloaded with
+     * GET and, if remoteCachePush is set, uploaded with PUT
+     */
+    @Parameter(name = "remoteCacheUrl")
+    protected String remoteCacheUrl;
+
+    /**
+     * Upload the dependencies transpiled locally to remoteCacheUrl (e.g. only from CI)
+     */
+    @Parameter(name = "remoteCachePush", defaultValue = "false")
+    protected boolean remoteCachePush = false;
+
+    /**
+     * Transpile again the dependencies that already failed, whose failures are otherwise kept in
+     * the toolchain directories of jsZipCacheDir and skipped until the jar or its classpath change
+     */
+    @Parameter(name = "retryFailedDependencies", property = "j2cl.retryFailedDependencies", defaultValue = "false")
+    protected boolean retryFailedDependencies = false;
+
+    /**
+     * Write the transpiled dependencies uncompressed, trading disk space for the time closure spends inflating
+     * them on every round; changing it transpiles all the dependencies again
+     */
+    @Parameter(name = "storedJsZips", defaultValue = "false")
+    protected boolean storedJsZips = false;
+
+    /**
+     * Keep the package listings of the javac classpath between rounds; directories are listed again only when
+     * modified
+     */
+    @Parameter(name = "cacheClasspathListings", defaultValue = "true")
+    protected boolean cacheClasspathListings = true;
+
     protected Map<String, File> getWorkingDirs() {
         Map<String, File> toReturn = new HashMap<>();
         getLog().info("targetPath " + targetPath);
@@ -3,6 +3,7 @@ package org.gwtproject.j2cl.mojo;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.gwtproject.j2cl.mojo.builder.BuildCompiler;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -17,10 +18,10 @@ import org.apache.maven.project.MavenProject;
 public class BuildMojo extends AbstractBuilderRunnerMojo {
 
     @Override
-    protected void internalExecute(List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws MojoExecutionException {
+    protected void internalExecute(List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws MojoExecutionException {
         getLog().info("Start building...");
         try {
-            BuildCompiler.build(this, orderedClasspath, targetPath, baseDirProjectMap);
+            BuildCompiler.build(this, orderedClasspath, dependencyGraph, targetPath, baseDirProjectMap);
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e.getMessage());
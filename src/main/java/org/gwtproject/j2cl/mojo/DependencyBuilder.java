@@ -18,8 +18,12 @@ package org.gwtproject.j2cl.mojo;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
@@ -65,8 +69,43 @@ public class DependencyBuilder {
 //        return toReturn;
     }
 
+    /**
+     * Retrieve a <code>Map</code> of each dependency file to the files of its direct dependencies
+     * @param session
+     * @param dependencyGraphBuilder
+     * @param project
+     * @param reactorProjects
+     * @param scope
+     * @return
+     * @throws MojoExecutionException
+     */
+    public static Map<File, Set<File>> getDependencyGraph(MavenSession session, DependencyGraphBuilder dependencyGraphBuilder, MavenProject project, List<MavenProject> reactorProjects, String scope) throws MojoExecutionException {
+        final DependencyNode dependencyNode = getDependencyNode(session, dependencyGraphBuilder, project, reactorProjects, scope);
+        Map<File, Set<File>> toReturn = new HashMap<>();
+        recursivelyPopulateGraph(toReturn, dependencyNode);
+        return toReturn;
+    }
+
     // private methods --------------------------------------------------------
 
+    /**
+     * Put the <code>DependencyNode</code>' artifact <code>File</code> (if not null) in the given <code>Map</code>,
+     * mapped to the <code>File</code>s of its children
+     * @param toPopulate
+     * @param dependencyNode
+     */
+    private static void recursivelyPopulateGraph(Map<File, Set<File>> toPopulate, DependencyNode dependencyNode) {
+        final File nodeFile = dependencyNode.getArtifact().getFile();
+        final Set<File> dependencies = nodeFile != null ? toPopulate.computeIfAbsent(nodeFile, file -> new HashSet<>()) : new HashSet<>();
+        for (DependencyNode child : dependencyNode.getChildren()) {
+            File childNodeFile = child.getArtifact().getFile();
+            if (childNodeFile != null) {
+                dependencies.add(childNodeFile);
+            }
+            recursivelyPopulateGraph(toPopulate, child);
+        }
+    }
+
     /**
      * Insert the <code>DependencyNode</code>' artifact <code>File</code> (if not null) to the given <code>List</code>
      * at the first (index 0) position
@@ -4,6 +4,7 @@ import java.io.File;
 import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,21 +20,26 @@ public class BuildCompiler {
 
     private final static Logger LOGGER = Logger.getLogger(ListeningCompiler.class.getName());
 
-    public static void build(Gwt3Options options, List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
+    public static void build(Gwt3Options options, List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
         LOGGER.setLevel(Level.INFO);
         LOGGER.info("Setup SingleCompiler");
-        SingleCompiler.setup(options, orderedClasspath, targetPath, baseDirProjectMap);
+        SingleCompiler.setup(options, orderedClasspath, dependencyGraph, targetPath, baseDirProjectMap);
         FileTime lastModified = FileTime.fromMillis(0);
         LOGGER.info("Begin build");
         long pollStarted = System.currentTimeMillis();
         FileTime newerThan = lastModified;
         List<FrontendUtils.FileInfo> modifiedJavaFiles = SingleCompiler.getModifiedJavaFiles(newerThan);
         long pollTime = System.currentTimeMillis() - pollStarted;
+        SingleCompiler.startRound();
+        boolean succeeded = false;
         try {
             SingleCompiler.preCompile(modifiedJavaFiles, targetPath);
             SingleCompiler.closure();
+            succeeded = true;
         } catch (Exception e) {
             LOGGER.severe(e.getMessage());
+        } finally {
+            SingleCompiler.endRound(succeeded);
         }
         LOGGER.info("poll: " + pollTime + "millis");
     }
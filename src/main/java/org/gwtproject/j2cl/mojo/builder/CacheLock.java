@@ -0,0 +1,109 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock over an entry of a cache shared by several builds, held through a lock file against the other
+ * processes, and through a <code>ReentrantLock</code> against the other threads of this JVM (e.g. the modules of
+ * a <code>mvn -T</code> build), since file locks are held on behalf of the whole JVM.
+ * <p>
+ * Lock files are left in place: deleting them would let a waiting process lock a file nobody else sees anymore.
+ */
+class CacheLock implements Closeable {
+
+    private static final Map<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock jvmLock;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+
+    private CacheLock(ReentrantLock jvmLock, FileChannel channel, FileLock fileLock) {
+        this.jvmLock = jvmLock;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Lock the given lock file, waiting for the current owner, if any, to release it
+     * @param lockFile
+     * @return
+     * @throws IOException
+     */
+    static CacheLock lock(Path lockFile) throws IOException {
+        ReentrantLock jvmLock = getJvmLock(lockFile);
+        jvmLock.lock();
+        try {
+            FileChannel channel = open(lockFile);
+            try {
+                return new CacheLock(jvmLock, channel, channel.lock());
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            jvmLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Lock the given lock file, if nobody else is holding it
+     * @param lockFile
+     * @return the lock, or <code>null</code> if it is held by someone else, or already by the current thread
+     * @throws IOException
+     */
+    static CacheLock tryLock(Path lockFile) throws IOException {
+        ReentrantLock jvmLock = getJvmLock(lockFile);
+        // the file lock cannot be taken twice by the same JVM
+        if (jvmLock.isHeldByCurrentThread() || !jvmLock.tryLock()) {
+            return null;
+        }
+        try {
+            FileChannel channel = open(lockFile);
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (fileLock == null) {
+                channel.close();
+                jvmLock.unlock();
+                return null;
+            }
+            return new CacheLock(jvmLock, channel, fileLock);
+        } catch (IOException | RuntimeException e) {
+            jvmLock.unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            fileLock.release();
+            channel.close();
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+
+    private static ReentrantLock getJvmLock(Path lockFile) {
+        return JVM_LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(), path -> new ReentrantLock());
+    }
+
+    private static FileChannel open(Path lockFile) throws IOException {
+        Files.createDirectories(lockFile.toAbsolutePath().getParent());
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+}
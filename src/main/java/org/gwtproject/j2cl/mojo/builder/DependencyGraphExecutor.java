@@ -0,0 +1,105 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a task for every node of a dependency graph on a bounded pool of threads.
+ * <p>
+ * A node is started as soon as all the nodes it depends on are finished, so independent nodes are handled
+ * concurrently. If a task fails, the nodes depending on it are not run, while the independent ones go on;
+ * the first failure is rethrown once every task is done.
+ * @param <T> the type of the nodes
+ */
+class DependencyGraphExecutor<T> {
+
+    private final int threads;
+
+    DependencyGraphExecutor(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Execute the given <code>GraphTask</code> over all the given <b>nodes</b>
+     * @param nodes the nodes to handle, dependencies first when possible
+     * @param dependencies the direct dependencies of each node; dependencies not included in <b>nodes</b> are ignored
+     * @param task
+     * @throws IOException
+     */
+    void execute(List<T> nodes, Map<T, ? extends Collection<T>> dependencies, GraphTask<T> task) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, nodes.size())));
+        try {
+            Set<T> toHandle = new HashSet<>(nodes);
+            Map<T, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            for (T node : nodes) {
+                schedule(node, toHandle, dependencies, task, futures, new HashSet<>(), executor);
+            }
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Void> schedule(T node, Set<T> toHandle, Map<T, ? extends Collection<T>> dependencies, GraphTask<T> task, Map<T, CompletableFuture<Void>> futures, Set<T> visiting, ExecutorService executor) {
+        CompletableFuture<Void> toReturn = futures.get(node);
+        if (toReturn != null) {
+            return toReturn;
+        }
+        visiting.add(node);
+        List<CompletableFuture<Void>> dependencyFutures = new ArrayList<>();
+        Collection<T> nodeDependencies = dependencies.get(node);
+        for (T dependency : nodeDependencies != null ? nodeDependencies : Collections.<T>emptyList()) {
+            // skip nodes not to be handled, and cycles (that should not be there, anyway)
+            if (toHandle.contains(dependency) && !visiting.contains(dependency)) {
+                dependencyFutures.add(schedule(dependency, toHandle, dependencies, task, futures, visiting, executor));
+            }
+        }
+        visiting.remove(node);
+        toReturn = CompletableFuture.allOf(dependencyFutures.toArray(new CompletableFuture[0]))
+                .thenRunAsync(() -> {
+                    try {
+                        task.run(node);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor);
+        futures.put(node, toReturn);
+        return toReturn;
+    }
+
+    /**
+     * The work to be done for a single node
+     * @param <T>
+     */
+    @FunctionalInterface
+    interface GraphTask<T> {
+
+        void run(T node) throws IOException;
+    }
+}
@@ -0,0 +1,141 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.gwtproject.j2cl.mojo.tools.ClassFileAbi;
+
+/**
+ * Negative cache of the dependency jars that failed to transpile, so that they are not transpiled again on every
+ * start: each failure is kept inside the <code>failed</code> directory of the toolchain in the jszip cache, as
+ * <code>&lt;jar md5&gt;-&lt;jar name&gt;.&lt;classpath hash&gt;.log</code>, holding the diagnostics of the
+ * transpiler; the jar is skipped as long as neither its content nor its classpath changed, unless
+ * <code>retryFailedDependencies</code> is set.
+ * <p>
+ * The logs are touched whenever they cause a jar to be skipped, and evicted with the least recently used entries
+ * of the {@link JsZipCache}.
+ */
+class FailedDependencies {
+
+    private final static Logger LOGGER = Logger.getLogger(FailedDependencies.class.getName());
+
+    private static final String SUFFIX = ".log";
+
+    private final Path failedDir;
+    private final boolean retry;
+    private final Map<String, Path> skipped = new TreeMap<>();
+    private final ClassFileAbi classFileAbi = new ClassFileAbi();
+
+    /**
+     * @param cacheDir the directory of the current toolchain in the jszip cache, see {@link JsZipCache#getDir()}
+     * @param retry <code>true</code> to transpile again the jars that already failed
+     */
+    FailedDependencies(Path cacheDir, boolean retry) {
+        this.failedDir = cacheDir.resolve("failed");
+        this.retry = retry;
+    }
+
+    /**
+     * Returns the key of the given jar transpiled with the given classpath, so that any change is retried: jars of
+     * the classpath are identified by their path, size and last modified time, directories (e.g. the
+     * <code>target/classes</code> of the reactor modules, whose modified time changes on every compilation) by the
+     * public API of their class files
+     * @param hash the md5 of the jar
+     * @param jar
+     * @param classpath
+     * @return
+     * @throws IOException
+     */
+    synchronized String getKey(String hash, File jar, List<String> classpath) throws IOException {
+        StringBuilder classpathKey = new StringBuilder();
+        for (String entry : classpath) {
+            File file = new File(entry);
+            classpathKey.append(entry).append(':');
+            if (file.isDirectory()) {
+                try (Stream<Path> classFiles = Files.find(file.toPath(), Integer.MAX_VALUE, (path, attrs) -> attrs.isRegularFile() && path.toString().endsWith(".class"))) {
+                    classpathKey.append(classFileAbi.fingerprint(classFiles.collect(Collectors.toList())));
+                }
+            } else {
+                classpathKey.append(file.length()).append(':').append(file.lastModified());
+            }
+            classpathKey.append('\n');
+        }
+        return hash + "-" + jar.getName() + "." + DigestUtils.md5Hex(classpathKey.toString());
+    }
+
+    /**
+     * Verify if the given jar is to be skipped, i.e. it already failed with the same content and classpath and
+     * retrying is not requested; skipped jars are listed by {@link #report()}
+     * @param jar
+     * @param key
+     * @return
+     */
+    synchronized boolean isToSkip(File jar, String key) {
+        Path log = failedDir.resolve(key + SUFFIX);
+        if (retry || !Files.isRegularFile(log)) {
+            return false;
+        }
+        try {
+            // still in use, see JsZipCache
+            Files.setLastModifiedTime(log, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // just evicted
+        }
+        skipped.put(jar.getAbsolutePath(), log);
+        return true;
+    }
+
+    /**
+     * Record the failure of the given jar, with the diagnostics of the transpiler
+     * @param jar
+     * @param key
+     * @param diagnostics
+     */
+    void failed(File jar, String key, String diagnostics) {
+        try {
+            Files.createDirectories(failedDir);
+            Path tmp = Files.createTempFile(failedDir, key, ".tmp");
+            Files.write(tmp, ("Failed transpiling " + jar.getAbsolutePath() + "\n\n" + diagnostics).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, failedDir.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to record the failure of " + jar + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the failure recorded for the given key, if any, after a successful retry
+     * @param key
+     */
+    void succeeded(String key) {
+        try {
+            Files.deleteIfExists(failedDir.resolve(key + SUFFIX));
+        } catch (IOException e) {
+            LOGGER.warning("Failed to delete " + key + SUFFIX + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Log the jars skipped so far, with the file holding their diagnostics
+     */
+    synchronized void report() {
+        if (skipped.isEmpty()) {
+            return;
+        }
+        StringBuilder report = new StringBuilder("Skipped " + skipped.size() + " dependencies that failed to transpile before, set retryFailedDependencies to try again:");
+        skipped.forEach((jar, log) -> report.append("\n  ").append(jar).append(" (see ").append(log).append(")"));
+        LOGGER.warning(report.toString());
+        skipped.clear();
+    }
+}
@@ -0,0 +1,154 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Persistent record of the dependency jars already handled, mapping each jar path, size and last modified time to
+ * its md5 and to the result of its transpilation, so that unchanged jars are neither hashed nor read again.
+ * <p>
+ * Each entry is stored as <code>path=size,lastModified,md5,result</code>, where <b>result</b> is the jszip path or
+ * an empty string for jars without sources.
+ */
+class JarManifest {
+
+    private final static Logger LOGGER = Logger.getLogger(JarManifest.class.getName());
+
+    private final Path path;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int hashed;
+    private boolean changed;
+
+    JarManifest(Path path) {
+        this.path = path;
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            for (String jar : properties.stringPropertyNames()) {
+                String[] values = properties.getProperty(jar).split(",", 4);
+                if (values.length == 4) {
+                    entries.put(jar, new Entry(Long.parseLong(values[0]), Long.parseLong(values[1]), values[2], values[3]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warning("Ignoring jar manifest " + path + ": " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the md5 of the given jar, hashing it only if it changed since the last time; jars are hashed outside
+     * the lock, so that several of them are hashed concurrently
+     * @param jar
+     * @return
+     * @throws IOException
+     */
+    String getHash(File jar) throws IOException {
+        synchronized (this) {
+            Entry entry = getEntry(jar);
+            if (entry != null) {
+                return entry.md5;
+            }
+        }
+        // read before hashing, so that a jar changed meanwhile is hashed again next time
+        long size = jar.length();
+        long lastModified = jar.lastModified();
+        String md5;
+        try (FileInputStream stream = new FileInputStream(jar)) {
+            md5 = DigestUtils.md5Hex(stream);
+        }
+        synchronized (this) {
+            hashed++;
+            entries.put(jar.getAbsolutePath(), new Entry(size, lastModified, md5, null));
+            changed = true;
+        }
+        return md5;
+    }
+
+    /**
+     * Returns the recorded result of the transpilation of the given jar: the jszip path, an empty string if the jar
+     * has no sources, or <code>null</code> if unknown or if the jar changed
+     * @param jar
+     * @return
+     */
+    synchronized String getResult(File jar) {
+        Entry entry = getEntry(jar);
+        return entry != null ? entry.result : null;
+    }
+
+    /**
+     * Record the result of the transpilation of the given jar, already hashed with {@link #getHash(File)}
+     * @param jar
+     * @param result the jszip path, or an empty string if the jar has no sources
+     */
+    synchronized void putResult(File jar, String result) {
+        Entry entry = getEntry(jar);
+        if (entry != null && !result.equals(entry.result)) {
+            entries.put(jar.getAbsolutePath(), new Entry(entry.size, entry.lastModified, entry.md5, result));
+            changed = true;
+        }
+    }
+
+    /**
+     * Write the manifest, if anything changed since it has been read
+     */
+    synchronized void write() {
+        LOGGER.info("Hashed " + hashed + " of " + entries.size() + " dependency jars");
+        if (!changed) {
+            return;
+        }
+        Properties properties = new Properties();
+        // jars without a result (i.e. failed ones) are hashed again next time
+        entries.forEach((jar, entry) -> {
+            if (entry.result != null) {
+                properties.setProperty(jar, entry.size + "," + entry.lastModified + "," + entry.md5 + "," + entry.result);
+            }
+        });
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+                properties.store(outputStream, "Dependency jars: size,lastModified,md5,jszip");
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            changed = false;
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write " + path + ": " + e.getMessage());
+        }
+    }
+
+    private Entry getEntry(File jar) {
+        Entry entry = entries.get(jar.getAbsolutePath());
+        return entry != null && entry.size == jar.length() && entry.lastModified == jar.lastModified() ? entry : null;
+    }
+
+    private static class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final String md5;
+        private final String result;
+
+        Entry(long size, long lastModified, String md5, String result) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.md5 = md5;
+            this.result = result;
+        }
+    }
+}
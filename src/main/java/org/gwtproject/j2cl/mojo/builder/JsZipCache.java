@@ -0,0 +1,402 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.google.j2cl.transpiler.J2clTranspiler;
+import com.google.javascript.jscomp.Compiler;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Index of the transpiled dependencies (the <code>*.js.zip</code> files) built by the current toolchain (J2CL and
+ * Closure versions), recording for each one its size and its last access. Entries written uncompressed are named
+ * <code>&lt;jar md5&gt;-&lt;jar name&gt;.stored.js.zip</code>, the others
+ * <code>&lt;jar md5&gt;-&lt;jar name&gt;.js.zip</code>, so that builds with different formats sharing the cache
+ * keep both.
+ * <p>
+ * Each toolchain has its own directory inside <code>jsZipCacheDir</code>, named after a hash of the toolchain, so
+ * that builds with different versions sharing the cache do not invalidate each other's entries. Once the
+ * dependencies are handled, the least recently used entries are deleted until the total size of the cache is
+ * within the configured bound, the ones used by the current build excluded: the entries of the other toolchains
+ * (and the ones left by older versions directly inside <code>jsZipCacheDir</code>) count too, by their last
+ * modified time, so that unused toolchains are evicted first, as well as the failure logs of
+ * {@link FailedDependencies} of all the toolchains.
+ */
+class JsZipCache {
+
+    private final static Logger LOGGER = Logger.getLogger(JsZipCache.class.getName());
+
+    private static final String INDEX = "jszip-index";
+    private static final String SUFFIX = ".js.zip";
+    private static final String TOOLCHAIN_PREFIX = "toolchain-";
+    private static final String TOOLCHAIN = "toolchain";
+    private static final String FAILED = "failed";
+    private static final String FAILED_SUFFIX = ".log";
+
+    private static String toolchainIdentity;
+
+    private final Path rootDir;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final String toolchain;
+    private final boolean stored;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final Set<String> used = new HashSet<>();
+    private long totalBytes;
+    private int hits;
+    private int misses;
+    private int fetched;
+    private int recordedHits;
+    private int recordedMisses;
+    private int recordedFetched;
+
+    /**
+     * @param rootDir the <code>jsZipCacheDir</code>, containing the directories of all the toolchains
+     * @param maxBytes the maximum total size of the entries, of all the toolchains; 0 means unbounded
+     * @param stored <code>true</code> if the entries are written uncompressed, see {@link JsZipWriter}
+     * @throws IOException
+     */
+    JsZipCache(Path rootDir, long maxBytes, boolean stored) throws IOException {
+        this.rootDir = rootDir;
+        this.maxBytes = maxBytes;
+        String tools = readToolchain();
+        this.cacheDir = rootDir.resolve(TOOLCHAIN_PREFIX + DigestUtils.md5Hex(tools).substring(0, 12));
+        // switching format builds the entries again, keeping the default toolchain unchanged
+        this.toolchain = tools + (stored ? ";jszip=stored" : "");
+        this.stored = stored;
+        Files.createDirectories(cacheDir);
+        Path toolchainFile = cacheDir.resolve(TOOLCHAIN);
+        if (!Files.isRegularFile(toolchainFile)) {
+            // to tell the directories apart
+            Files.write(toolchainFile, tools.getBytes(StandardCharsets.UTF_8));
+        }
+        Properties properties = new Properties();
+        Path index = cacheDir.resolve(INDEX);
+        if (Files.isRegularFile(index)) {
+            try (InputStream inputStream = Files.newInputStream(index)) {
+                properties.load(inputStream);
+            } catch (IOException e) {
+                LOGGER.warning("Ignoring jszip cache index " + index + ": " + e.getMessage());
+            }
+        }
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> jszips = Files.newDirectoryStream(cacheDir, "*" + SUFFIX)) {
+            for (Path jszip : jszips) {
+                String name = jszip.getFileName().toString();
+                Entry entry = Entry.parse(name, properties.getProperty(name));
+                long lastModified = Files.getLastModifiedTime(jszip).toMillis();
+                if (entry == null) {
+                    // built before the index existed, or by another build sharing the cache
+                    entry = new Entry(name, lastModified, Files.size(jszip));
+                } else if (lastModified > entry.lastAccess) {
+                    entry = new Entry(name, lastModified, entry.size);
+                }
+                found.add(entry);
+            }
+        }
+        found.sort((first, second) -> Long.compare(first.lastAccess, second.lastAccess));
+        for (Entry entry : found) {
+            entries.put(entry.name, entry);
+            totalBytes += entry.size;
+        }
+        LOGGER.info("jszip cache " + cacheDir + ": " + entries.size() + " entries, " + totalBytes / 1024 / 1024 + " MB");
+    }
+
+    /**
+     * Record the use of an existing entry
+     * @param jszipOut
+     */
+    synchronized void hit(String jszipOut) {
+        hits++;
+        touch(jszipOut);
+    }
+
+    /**
+     * Record a new entry, just built
+     * @param jszipOut
+     */
+    synchronized void built(String jszipOut) {
+        misses++;
+        touch(jszipOut);
+    }
+
+    /**
+     * Record a new entry, fetched from the remote cache
+     * @param jszipOut
+     */
+    synchronized void fetched(String jszipOut) {
+        fetched++;
+        touch(jszipOut);
+    }
+
+    /**
+     * Returns the J2CL and Closure versions, and the jszip format, the entries are built with
+     * @return
+     */
+    String getToolchain() {
+        return toolchain;
+    }
+
+    /**
+     * Returns the directory of the entries of the current toolchain
+     * @return
+     */
+    Path getDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Returns the path of the entry of the given jar, in the current toolchain and format
+     * @param hash the md5 of the jar
+     * @param jarName
+     * @return
+     */
+    String getEntryPath(String hash, String jarName) {
+        return cacheDir.resolve(hash + "-" + jarName + (stored ? ".stored" : "") + SUFFIX).toString();
+    }
+
+    /**
+     * Delete the least recently used entries, of any toolchain but not used by the current build, and failure logs
+     * until the total size is within the bound; then write the index and report the hit rate
+     */
+    synchronized void evictAndWrite() {
+        int evicted = 0;
+        long otherBytes = 0;
+        if (maxBytes > 0) {
+            List<Path> candidates = new ArrayList<>();
+            Map<Path, Long> lastAccesses = new HashMap<>();
+            Map<Path, Long> sizes = new HashMap<>();
+            for (Entry entry : entries.values()) {
+                if (!used.contains(entry.name)) {
+                    Path jszip = cacheDir.resolve(entry.name);
+                    candidates.add(jszip);
+                    lastAccesses.put(jszip, entry.lastAccess);
+                    sizes.put(jszip, entry.size);
+                }
+            }
+            for (Path jszip : getOtherEntries()) {
+                try {
+                    lastAccesses.put(jszip, Files.getLastModifiedTime(jszip).toMillis());
+                    sizes.put(jszip, Files.size(jszip));
+                    candidates.add(jszip);
+                    otherBytes += sizes.get(jszip);
+                } catch (IOException e) {
+                    // just evicted by another build
+                }
+            }
+            candidates.sort(Comparator.comparing(lastAccesses::get));
+            Iterator<Path> iterator = candidates.iterator();
+            while (totalBytes + otherBytes > maxBytes && iterator.hasNext()) {
+                Path jszip = iterator.next();
+                String name = jszip.getFileName().toString();
+                boolean own = jszip.getParent().equals(cacheDir);
+                if (name.endsWith(FAILED_SUFFIX)) {
+                    // a failure log, whose loss only means trying that jar again
+                    try {
+                        if (Files.getLastModifiedTime(jszip).toMillis() <= lastAccesses.get(jszip) && Files.deleteIfExists(jszip)) {
+                            otherBytes -= sizes.get(jszip);
+                            evicted++;
+                        }
+                    } catch (IOException e) {
+                        // just touched, or evicted, by another build
+                    }
+                    continue;
+                }
+                // skip the ones being built, or used by other builds since this index has been written
+                try (CacheLock lock = CacheLock.tryLock(jszip.getParent().resolve("locks").resolve(name + ".lock"))) {
+                    if (lock == null || Files.getLastModifiedTime(jszip).toMillis() > lastAccesses.get(jszip)) {
+                        continue;
+                    }
+                    Files.deleteIfExists(jszip);
+                    if (own) {
+                        entries.remove(name);
+                        totalBytes -= sizes.get(jszip);
+                    } else {
+                        otherBytes -= sizes.get(jszip);
+                    }
+                    evicted++;
+                } catch (IOException e) {
+                    LOGGER.warning("Failed to evict " + jszip + ": " + e.getMessage());
+                }
+            }
+        }
+        Properties properties = new Properties();
+        entries.values().forEach(entry -> properties.setProperty(entry.name, entry.lastAccess + "," + entry.size));
+        try {
+            Path tmp = Files.createTempFile(cacheDir, INDEX, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+                properties.store(outputStream, "jszip: lastAccess,size");
+            }
+            Files.move(tmp, cacheDir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write the jszip cache index: " + e.getMessage());
+        }
+        int requests = hits + fetched + misses;
+        LOGGER.info("jszip cache: " + hits + " hits, " + fetched + " remote hits, " + misses + " misses" + (requests > 0 ? " (" + (hits + fetched) * 100 / requests + "% hit rate)" : "")
+                            + ", " + evicted + " evicted, " + entries.size() + " entries, " + totalBytes / 1024 / 1024 + " MB"
+                            + (otherBytes > 0 ? ", " + otherBytes / 1024 / 1024 + " MB of other toolchains and failure logs" : ""));
+    }
+
+    /**
+     * Returns the entries of the other toolchains, the ones left directly inside the root directory by older
+     * versions, and the failure logs of all the toolchains (and of the older versions)
+     * @return
+     */
+    private List<Path> getOtherEntries() {
+        List<Path> toReturn = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(rootDir)) {
+            for (Path child : children) {
+                if (child.getFileName().toString().endsWith(SUFFIX) && Files.isRegularFile(child)) {
+                    toReturn.add(child);
+                } else if (child.getFileName().toString().equals(FAILED) && Files.isDirectory(child)) {
+                    try (DirectoryStream<Path> logs = Files.newDirectoryStream(child, "*" + FAILED_SUFFIX)) {
+                        logs.forEach(toReturn::add);
+                    }
+                } else if (child.getFileName().toString().startsWith(TOOLCHAIN_PREFIX) && Files.isDirectory(child)) {
+                    if (!child.equals(cacheDir)) {
+                        try (DirectoryStream<Path> jszips = Files.newDirectoryStream(child, "*" + SUFFIX)) {
+                            jszips.forEach(toReturn::add);
+                        }
+                    }
+                    if (Files.isDirectory(child.resolve(FAILED))) {
+                        try (DirectoryStream<Path> logs = Files.newDirectoryStream(child.resolve(FAILED), "*" + FAILED_SUFFIX)) {
+                            logs.forEach(toReturn::add);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to list the jszip cache " + rootDir + ": " + e.getMessage());
+        }
+        return toReturn;
+    }
+
+    /**
+     * Add the hits and misses since the previous call to the given metrics
+     * @param metrics
+     */
+    synchronized void recordTo(RoundMetrics metrics) {
+        metrics.count("jsZipCacheHits", hits - recordedHits);
+        metrics.count("jsZipCacheRemoteHits", fetched - recordedFetched);
+        metrics.count("jsZipCacheMisses", misses - recordedMisses);
+        recordedHits = hits;
+        recordedFetched = fetched;
+        recordedMisses = misses;
+    }
+
+    private void touch(String jszipOut) {
+        Path jszip = cacheDir.resolve(jszipOut).toAbsolutePath().normalize();
+        if (!cacheDir.toAbsolutePath().normalize().equals(jszip.getParent())) {
+            return;
+        }
+        String name = jszip.getFileName().toString();
+        long size;
+        try {
+            size = Files.size(jszip);
+        } catch (IOException e) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            // the last access is visible to the other builds sharing the cache, too
+            Files.setLastModifiedTime(jszip, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // the entry may just be evicted by another build
+        }
+        Entry previous = entries.put(name, new Entry(name, now, size));
+        totalBytes += size - (previous != null ? previous.size : 0);
+        used.add(name);
+    }
+
+    /**
+     * Returns the file locking the given entry while it is built, see {@link CacheLock}
+     * @param name
+     * @return
+     */
+    Path getLockFile(String name) {
+        return cacheDir.resolve("locks").resolve(name + ".lock");
+    }
+
+    /**
+     * Returns the J2CL and Closure versions: the versions in their manifests when released, otherwise (the versions
+     * are not always set, and snapshots keep theirs across rebuilds) the names and md5 of the jars providing them
+     * @return
+     */
+    static synchronized String readToolchain() {
+        if (toolchainIdentity == null) {
+            toolchainIdentity = "j2cl=" + getLocation(J2clTranspiler.class) + ";closure=" + getLocation(Compiler.class);
+        }
+        return toolchainIdentity;
+    }
+
+    private static String getLocation(Class<?> toolClass) {
+        String version = toolClass.getPackage() != null ? toolClass.getPackage().getImplementationVersion() : null;
+        if (version != null && !version.endsWith("-SNAPSHOT")) {
+            return version;
+        }
+        CodeSource codeSource = toolClass.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return version != null ? version : "unknown";
+        }
+        String location = codeSource.getLocation().getPath();
+        String name = location.substring(location.lastIndexOf('/', location.length() - 2) + 1);
+        try {
+            Path jar = Paths.get(codeSource.getLocation().toURI());
+            if (Files.isRegularFile(jar)) {
+                // the same name on every rebuild of a snapshot, and the same content on every machine
+                try (InputStream inputStream = Files.newInputStream(jar)) {
+                    return name + "@" + DigestUtils.md5Hex(inputStream);
+                }
+            }
+        } catch (URISyntaxException | IOException | IllegalArgumentException e) {
+            LOGGER.warning("Failed to hash " + location + ", the jszip cache will not tell its rebuilds apart: " + e.getMessage());
+        }
+        return name;
+    }
+
+    private static class Entry {
+
+        private final String name;
+        private final long lastAccess;
+        private final long size;
+
+        Entry(String name, long lastAccess, long size) {
+            this.name = name;
+            this.lastAccess = lastAccess;
+            this.size = size;
+        }
+
+        static Entry parse(String name, String value) {
+            if (value == null) {
+                return null;
+            }
+            String[] values = value.split(",");
+            try {
+                return values.length == 2 ? new Entry(name, Long.parseLong(values[0]), Long.parseLong(values[1])) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
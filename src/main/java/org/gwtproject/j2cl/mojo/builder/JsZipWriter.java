@@ -0,0 +1,116 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writer of a jszip in a single pass, streaming each entry to the archive as it is added, instead of appending to
+ * an existing zip <code>FileSystem</code> (that rewrites the whole archive when closed).
+ * <p>
+ * Entries up to {@link #STORE_THRESHOLD} bytes are <b>STORED</b>, since deflating them saves next to nothing while
+ * costing as much to read back; bigger ones are <b>DEFLATED</b>, unless all the entries are to be stored, so that
+ * closure reads them without inflating them on every round. The first entry added for a name wins, the following
+ * ones being ignored.
+ */
+class JsZipWriter implements Closeable {
+
+    /**
+     * Maximum size, in bytes, of the entries stored without compression
+     */
+    static final int STORE_THRESHOLD = 1024;
+
+    private final ZipOutputStream zipOutputStream;
+    private final boolean stored;
+    private final Set<String> names = new HashSet<>();
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * @param target
+     * @param stored <code>true</code> to store all the entries uncompressed, whatever their size
+     * @throws IOException
+     */
+    JsZipWriter(File target, boolean stored) throws IOException {
+        this.zipOutputStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(target), 65536));
+        this.stored = stored;
+    }
+
+    /**
+     * Add the given entry, reading it from the given stream, not closed
+     * @param name
+     * @param inputStream
+     * @param size the size of the entry, or -1 if unknown
+     * @return <code>false</code> if an entry with the same name was already added
+     * @throws IOException
+     */
+    boolean addEntry(String name, InputStream inputStream, long size) throws IOException {
+        if (!names.add(name)) {
+            return false;
+        }
+        ZipEntry entry = new ZipEntry(name);
+        if (stored || (size >= 0 && size <= STORE_THRESHOLD)) {
+            // stored entries need their size and crc up front
+            ByteArrayOutputStream content = new ByteArrayOutputStream(size >= 0 && size < Integer.MAX_VALUE ? (int) size : 8192);
+            copy(inputStream, content);
+            CRC32 crc = new CRC32();
+            crc.update(content.toByteArray());
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.size());
+            entry.setCompressedSize(content.size());
+            entry.setCrc(crc.getValue());
+            zipOutputStream.putNextEntry(entry);
+            content.writeTo(zipOutputStream);
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+            zipOutputStream.putNextEntry(entry);
+            copy(inputStream, zipOutputStream);
+        }
+        zipOutputStream.closeEntry();
+        return true;
+    }
+
+    /**
+     * Add all the files inside the given directory, named after their path relative to it
+     * @param root
+     * @throws IOException
+     */
+    void addDirectory(Path root) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                addEntry(name, inputStream, Files.size(file));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipOutputStream.close();
+    }
+
+    private void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+    }
+}
@@ -2,13 +2,20 @@ package org.gwtproject.j2cl.mojo.builder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import com.google.j2cl.common.FrontendUtils;
 import org.gwtproject.j2cl.mojo.options.Gwt3Options;
@@ -32,16 +39,17 @@ import org.apache.maven.project.MavenProject;
  * Not so good:
  * o Not correctly recompiling classes that require it based on dependencies
  * o Not at all convinced my javac wiring is correct
- * o Polling for changes
+ * o Polling for changes (still available as fallback, changes are otherwise detected with a <code>WatchService</code>)
  */
 public class ListeningCompiler {
 
     private final static Logger LOGGER = Logger.getLogger(ListeningCompiler.class.getName());
 
-    public static void run(Gwt3Options options, List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
+    public static void run(Gwt3Options options, List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
         LOGGER.setLevel(Level.INFO);
         LOGGER.info("Setup SingleCompiler");
-        SingleCompiler.setup(options, orderedClasspath, targetPath, baseDirProjectMap);
+        SingleCompiler.setup(options, orderedClasspath, dependencyGraph, targetPath, baseDirProjectMap);
+        SingleCompiler.registerMetrics();
         FileTime lastModified = FileTime.fromMillis(0);
         LOGGER.info("Begin listening");
 
@@ -57,34 +65,163 @@ public class ListeningCompiler {
                 }
             }
         } else {
-            while (true) {
-                lastModified = runJsCompRound(targetPath, lastModified, 100);
+            SourceWatcher sourceWatcher = options.isPollForChanges() ? null : createSourceWatcher(options, baseDirProjectMap);
+            if (sourceWatcher == null) {
+                while (true) {
+                    lastModified = runJsCompRound(targetPath, lastModified, 100);
+                }
+            }
+            try {
+                // the watcher is already registered, so changes made during the first round are not lost
+                lastModified = runJsCompRound(targetPath, lastModified, 0);
+                while (true) {
+                    lastModified = runWatchedJsCompRound(sourceWatcher, targetPath, lastModified);
+                }
+            } finally {
+                sourceWatcher.close();
             }
         }
     }
 
+    /**
+     * Creates a <code>SourceWatcher</code> over the source directories, the ones of the reactor modules, their
+     * resource and generated sources ones and the ones of the dependency jars
+     * @param options
+     * @param baseDirProjectMap
+     * @return the <code>SourceWatcher</code>, or <code>null</code> if file watching is not available
+     */
+    private static SourceWatcher createSourceWatcher(Gwt3Options options, Map<String, MavenProject> baseDirProjectMap) {
+        Set<Path> roots = new LinkedHashSet<>();
+        options.getSourceDir().forEach(sourceDir -> roots.add(Paths.get(sourceDir).toAbsolutePath().normalize()));
+        baseDirProjectMap.keySet().forEach(sourceRoot -> roots.add(Paths.get(sourceRoot).toAbsolutePath().normalize()));
+        baseDirProjectMap.values().forEach(mavenProject -> roots.add(Paths.get(mavenProject.getBuild().getDirectory(), "generated-sources").toAbsolutePath().normalize()));
+        // the resource directories, for the native.js files
+        NativeSourceIndex.getResourceRoots(baseDirProjectMap.values()).forEach(resourceRoot -> roots.add(resourceRoot.toAbsolutePath().normalize()));
+        // the dependency jars, to transpile them again when replaced
+        roots.addAll(SingleCompiler.getWatchedJarDirectories());
+        try {
+            return new SourceWatcher(roots, options.getWatchDebounceMillis());
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warning("Failed to watch source directories, falling back to polling: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static FileTime runWatchedJsCompRound(SourceWatcher sourceWatcher, File targetPath, FileTime lastModified) throws IOException, InterruptedException {
+        Set<Path> changedPaths = sourceWatcher.take();
+        long pollStarted = System.currentTimeMillis();
+        List<FrontendUtils.FileInfo> modifiedJavaFiles;
+        boolean jarsChanged = false;
+        Set<String> deletedJavaPaths = new LinkedHashSet<>();
+        if (sourceWatcher.overflowed()) {
+            // some events have been lost, look at the whole source tree
+            SingleCompiler.invalidateNativeSources();
+            modifiedJavaFiles = SingleCompiler.getModifiedJavaFiles(lastModified);
+            deletedJavaPaths.addAll(SingleCompiler.getDeletedSources());
+            jarsChanged = SingleCompiler.hasChangedJars();
+        } else {
+            // a native.js change requires its java companions to be transpiled again
+            Set<String> modifiedJavaPaths = new LinkedHashSet<>(SingleCompiler.updateNativeSources(changedPaths));
+            for (Path changedPath : changedPaths) {
+                String pathString = changedPath.toString();
+                if (pathString.endsWith(".java") && Files.isRegularFile(changedPath)) {
+                    modifiedJavaPaths.add(pathString);
+                } else if (pathString.endsWith(".java") && !Files.exists(changedPath)) {
+                    deletedJavaPaths.add(pathString);
+                } else if (!Files.exists(changedPath) && !pathString.endsWith(".js") && !pathString.endsWith(".jar")) {
+                    // a deleted directory, whose files are not notified one by one
+                    Path deletedDir = changedPath.toAbsolutePath().normalize();
+                    SingleCompiler.getDeletedSources().stream()
+                            .filter(sourcePath -> Paths.get(sourcePath).startsWith(deletedDir))
+                            .forEach(deletedJavaPaths::add);
+                } else if (pathString.endsWith(".jar")) {
+                    jarsChanged = jarsChanged || SingleCompiler.hasChangedJars();
+                }
+            }
+            modifiedJavaFiles = modifiedJavaPaths.stream().map(path -> FrontendUtils.FileInfo.create(path, path)).collect(Collectors.toList());
+        }
+        boolean sourcesDeleted = !deletedJavaPaths.isEmpty();
+        if (sourcesDeleted) {
+            modifiedJavaFiles = addDeletedDependents(modifiedJavaFiles, deletedJavaPaths);
+        }
+        if (jarsChanged) {
+            modifiedJavaFiles = addJarDependents(modifiedJavaFiles);
+        }
+        long pollTime = System.currentTimeMillis() - pollStarted;
+        FileTime nextModifiedIfSuccessful = FileTime.fromMillis(System.currentTimeMillis());
+        if (modifiedJavaFiles.isEmpty() && !jarsChanged && !sourcesDeleted) {
+            return lastModified;
+        }
+        compile(modifiedJavaFiles, targetPath, nextModifiedIfSuccessful);
+        LOGGER.info("watch: " + pollTime + "millis");
+        return nextModifiedIfSuccessful;
+    }
+
     private static FileTime runJsCompRound(File targetPath, FileTime lastModified, long delay) throws IOException, InterruptedException {
         // currently polling for changes.
         // block until changes instead? easy to replace with filewatcher, just watch out for java9/osx issues...
         long pollStarted = System.currentTimeMillis();
         FileTime newerThan = lastModified;
         List<FrontendUtils.FileInfo> modifiedJavaFiles = SingleCompiler.getModifiedJavaFiles(newerThan);
+        Set<String> deletedJavaPaths = SingleCompiler.getDeletedSources();
+        boolean sourcesDeleted = !deletedJavaPaths.isEmpty();
+        if (sourcesDeleted) {
+            modifiedJavaFiles = addDeletedDependents(modifiedJavaFiles, deletedJavaPaths);
+        }
+        boolean jarsChanged = SingleCompiler.hasChangedJars();
+        if (jarsChanged) {
+            modifiedJavaFiles = addJarDependents(modifiedJavaFiles);
+        }
         long pollTime = System.currentTimeMillis() - pollStarted;
         // don't replace this until the loop finishes successfully, so we know the last time we started a successful preCompile
         FileTime nextModifiedIfSuccessful = FileTime.fromMillis(System.currentTimeMillis());
-        if (modifiedJavaFiles.isEmpty()) {
+        if (modifiedJavaFiles.isEmpty() && !jarsChanged && !sourcesDeleted) {
             Thread.sleep(delay);
             return lastModified;
         }
+        // native.js changes are not known without events
+        SingleCompiler.invalidateNativeSources();
+        compile(modifiedJavaFiles, targetPath, nextModifiedIfSuccessful);
+        LOGGER.info("poll: " + pollTime + "millis");
+        lastModified = nextModifiedIfSuccessful;
+        return lastModified;
+    }
+
+    /**
+     * Remove the outputs of the deleted sources, adding the sources referencing them to the given ones
+     * @param modifiedJavaFiles
+     * @param deletedJavaPaths
+     * @return
+     */
+    private static List<FrontendUtils.FileInfo> addDeletedDependents(List<FrontendUtils.FileInfo> modifiedJavaFiles, Set<String> deletedJavaPaths) {
+        Set<FrontendUtils.FileInfo> toReturn = new LinkedHashSet<>(modifiedJavaFiles);
+        toReturn.addAll(SingleCompiler.removeDeletedSources(deletedJavaPaths));
+        return new ArrayList<>(toReturn);
+    }
+
+    /**
+     * Transpile again the replaced dependency jars, adding the sources referencing them to the given ones
+     * @param modifiedJavaFiles
+     * @return
+     */
+    private static List<FrontendUtils.FileInfo> addJarDependents(List<FrontendUtils.FileInfo> modifiedJavaFiles) {
+        Set<FrontendUtils.FileInfo> toReturn = new LinkedHashSet<>(modifiedJavaFiles);
+        toReturn.addAll(SingleCompiler.refreshChangedJars());
+        return new ArrayList<>(toReturn);
+    }
+
+    private static void compile(List<FrontendUtils.FileInfo> modifiedJavaFiles, File targetPath, FileTime started) {
+        SingleCompiler.startRound();
+        boolean succeeded = false;
         try {
             SingleCompiler.preCompile(modifiedJavaFiles, targetPath);
             SingleCompiler.closure();
+            succeeded = true;
         } catch (Exception e) {
             LOGGER.severe(e.getMessage());
+        } finally {
+            SingleCompiler.endRound(succeeded);
         }
-        LOGGER.info("Recompile of " + modifiedJavaFiles.size() + " source classes finished in " + (System.currentTimeMillis() - nextModifiedIfSuccessful.to(TimeUnit.MILLISECONDS)) + "ms");
-        LOGGER.info("poll: " + pollTime + "millis");
-        lastModified = nextModifiedIfSuccessful;
-        return lastModified;
+        LOGGER.info("Recompile of " + modifiedJavaFiles.size() + " source classes finished in " + (System.currentTimeMillis() - started.to(TimeUnit.MILLISECONDS)) + "ms");
     }
 }
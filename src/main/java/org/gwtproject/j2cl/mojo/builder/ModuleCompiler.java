@@ -0,0 +1,275 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import com.google.j2cl.common.FrontendUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+import org.gwtproject.j2cl.mojo.tools.DependencyIndex;
+import org.gwtproject.j2cl.mojo.tools.Javac;
+import org.gwtproject.j2cl.mojo.tools.SourceCompiler;
+
+/**
+ * <code>SourceCompiler</code> that compiles the sources of each reactor module on its own, with a <code>Javac</code>
+ * per module whose classpath is made of the module dependencies only and with a dedicated output directory.
+ * <p>
+ * Modules are compiled in topological order, the independent ones concurrently; when a module fails to compile,
+ * the modules depending on it are skipped, while the classes of all the other ones are kept.
+ * Sources outside any module (e.g. the ones written by annotation processors in a previous round) are compiled
+ * with the <i>root</i> module, i.e. the one depending on most of the others.
+ */
+class ModuleCompiler implements SourceCompiler {
+
+    private final static Logger LOGGER = Logger.getLogger(ModuleCompiler.class.getName());
+
+    private final File generatedClassesPath;
+    private final File bootstrap;
+    private final boolean cacheClasspathListings;
+    private final int threads;
+    private final Map<String, MavenProject> sourceRootProjectMap = new LinkedHashMap<>();
+    private final Map<MavenProject, File> classesDirs = new LinkedHashMap<>();
+    private final Map<MavenProject, Set<MavenProject>> moduleDependencies = new HashMap<>();
+    private final Map<MavenProject, Javac> javacs = new ConcurrentHashMap<>();
+    private final MavenProject rootModule;
+    private Map<String, DependencyIndex.Unit> compiledUnits = Collections.emptyMap();
+    private List<FrontendUtils.FileInfo> failedSources = Collections.emptyList();
+    private long lastCompileMillis;
+    private long lastListingMillis;
+    private volatile Consumer<List<FrontendUtils.FileInfo>> moduleListener;
+
+    /**
+     * @param generatedClassesPath
+     * @param baseDirProjectMap the reactor modules, mapped by their compile source roots
+     * @param classesBaseDir the directory containing the output directories of all the modules
+     * @param bootstrap
+     * @param cacheClasspathListings
+     * @param threads the number of modules compiled concurrently
+     */
+    ModuleCompiler(File generatedClassesPath, Map<String, MavenProject> baseDirProjectMap, File classesBaseDir, File bootstrap, boolean cacheClasspathListings, int threads) {
+        this.generatedClassesPath = generatedClassesPath;
+        this.bootstrap = bootstrap;
+        this.cacheClasspathListings = cacheClasspathListings;
+        this.threads = threads;
+        baseDirProjectMap.forEach((sourceRoot, mavenProject) -> sourceRootProjectMap.put(DependencyIndex.normalize(sourceRoot), mavenProject));
+        final Map<String, MavenProject> modulesById = new LinkedHashMap<>();
+        baseDirProjectMap.values().forEach(mavenProject -> modulesById.putIfAbsent(getModuleId(mavenProject.getGroupId(), mavenProject.getArtifactId()), mavenProject));
+        for (MavenProject module : modulesById.values()) {
+            classesDirs.put(module, new File(classesBaseDir, module.getGroupId() + "." + module.getArtifactId()));
+            Set<MavenProject> dependencies = new HashSet<>();
+            module.getArtifacts().forEach(artifact -> {
+                MavenProject dependency = modulesById.get(getModuleId(artifact.getGroupId(), artifact.getArtifactId()));
+                if (dependency != null && dependency != module) {
+                    dependencies.add(dependency);
+                }
+            });
+            moduleDependencies.put(module, dependencies);
+        }
+        rootModule = modulesById.values().stream()
+                .max(Comparator.comparingInt(module -> moduleDependencies.get(module).size()))
+                .orElseThrow(() -> new IllegalArgumentException("No module to compile"));
+        LOGGER.info("Compiling " + modulesById.size() + " modules with " + threads + " threads, root module " + rootModule.getId());
+    }
+
+    @Override
+    public boolean compile(List<FrontendUtils.FileInfo> modifiedJavaFiles) {
+        long startTime = System.currentTimeMillis();
+        final Map<MavenProject, List<FrontendUtils.FileInfo>> sourcesByModule = groupByModule(modifiedJavaFiles);
+        final Map<String, DependencyIndex.Unit> units = new ConcurrentHashMap<>();
+        final Set<MavenProject> compiled = ConcurrentHashMap.newKeySet();
+        final AtomicLong listingMillis = new AtomicLong();
+        boolean toReturn = true;
+        try {
+            new DependencyGraphExecutor<MavenProject>(threads).execute(new ArrayList<>(sourcesByModule.keySet()), moduleDependencies, module -> {
+                Javac javac = getJavac(module);
+                boolean succeeded = javac.compile(sourcesByModule.get(module));
+                listingMillis.addAndGet(javac.getLastListingMillis());
+                if (!succeeded) {
+                    throw new IOException("Failed to compile module " + module.getId());
+                }
+                units.putAll(javac.getCompiledUnits());
+                compiled.add(module);
+                LOGGER.info("javac " + module.getId() + ": " + javac.getLastCompileMillis() + "millis");
+                Consumer<List<FrontendUtils.FileInfo>> listener = moduleListener;
+                if (listener != null) {
+                    listener.accept(sourcesByModule.get(module));
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+            toReturn = false;
+        }
+        // dependents of a failed module are skipped, so they have to be compiled again, too
+        failedSources = sourcesByModule.entrySet().stream()
+                .filter(entry -> !compiled.contains(entry.getKey()))
+                .flatMap(entry -> entry.getValue().stream())
+                .collect(Collectors.toList());
+        compiledUnits = units;
+        lastListingMillis = listingMillis.get();
+        lastCompileMillis = System.currentTimeMillis() - startTime;
+        return toReturn;
+    }
+
+    /**
+     * Set the listener notified, from the compiling thread, with the sources of every module as soon as they are
+     * successfully compiled; <code>null</code> to remove it
+     * @param moduleListener
+     */
+    void setModuleListener(Consumer<List<FrontendUtils.FileInfo>> moduleListener) {
+        this.moduleListener = moduleListener;
+    }
+
+    @Override
+    public boolean processAnnotations(List<FrontendUtils.FileInfo> javaFiles) {
+        boolean toReturn = true;
+        for (Map.Entry<MavenProject, List<FrontendUtils.FileInfo>> entry : groupByModule(javaFiles).entrySet()) {
+            toReturn &= getJavac(entry.getKey()).processAnnotations(entry.getValue());
+        }
+        return toReturn;
+    }
+
+    @Override
+    public boolean hasAnnotationProcessors() {
+        return classesDirs.keySet().stream().anyMatch(module -> getJavac(module).hasAnnotationProcessors());
+    }
+
+    @Override
+    public Set<String> getGeneratedSources() {
+        Set<String> toReturn = new LinkedHashSet<>();
+        javacs.values().forEach(javac -> toReturn.addAll(javac.getGeneratedSources()));
+        return toReturn;
+    }
+
+    @Override
+    public void clearGeneratedSources() {
+        javacs.values().forEach(Javac::clearGeneratedSources);
+    }
+
+    @Override
+    public Map<String, DependencyIndex.Unit> getCompiledUnits() {
+        return Collections.unmodifiableMap(compiledUnits);
+    }
+
+    @Override
+    public List<FrontendUtils.FileInfo> getFailedSources() {
+        return failedSources;
+    }
+
+    @Override
+    public File getClassesDir(String sourcePath) {
+        return classesDirs.get(getModule(sourcePath));
+    }
+
+    @Override
+    public List<File> getOutputDirs() {
+        return new ArrayList<>(classesDirs.values());
+    }
+
+    @Override
+    public long getLastCompileMillis() {
+        return lastCompileMillis;
+    }
+
+    @Override
+    public long getLastListingMillis() {
+        return lastListingMillis;
+    }
+
+    @Override
+    public String getListingStats() {
+        int cached = 0;
+        int total = 0;
+        for (Javac javac : javacs.values()) {
+            String[] stats = javac.getListingStats().split("/");
+            cached += Integer.parseInt(stats[0]);
+            total += Integer.parseInt(stats[1]);
+        }
+        return cached + "/" + total;
+    }
+
+    private Map<MavenProject, List<FrontendUtils.FileInfo>> groupByModule(Collection<FrontendUtils.FileInfo> javaFiles) {
+        Map<MavenProject, List<FrontendUtils.FileInfo>> toReturn = new LinkedHashMap<>();
+        javaFiles.forEach(javaFile -> toReturn.computeIfAbsent(getModule(javaFile.sourcePath()), module -> new ArrayList<>()).add(javaFile));
+        return toReturn;
+    }
+
+    /**
+     * Returns the module whose source root contains the given source, the root module if none does
+     * @param sourcePath
+     * @return
+     */
+    private MavenProject getModule(String sourcePath) {
+        String normalized = DependencyIndex.normalize(sourcePath);
+        MavenProject toReturn = rootModule;
+        int matchedLength = -1;
+        for (Map.Entry<String, MavenProject> entry : sourceRootProjectMap.entrySet()) {
+            String sourceRoot = entry.getKey();
+            if (sourceRoot.length() > matchedLength && (normalized.equals(sourceRoot) || normalized.startsWith(sourceRoot + File.separator))) {
+                toReturn = classesDirs.containsKey(entry.getValue()) ? entry.getValue() : getModuleByCoordinates(entry.getValue());
+                matchedLength = sourceRoot.length();
+            }
+        }
+        return toReturn;
+    }
+
+    private MavenProject getModuleByCoordinates(MavenProject mavenProject) {
+        return classesDirs.keySet().stream()
+                .filter(module -> module.getGroupId().equals(mavenProject.getGroupId()) && module.getArtifactId().equals(mavenProject.getArtifactId()))
+                .findFirst()
+                .orElse(rootModule);
+    }
+
+    private Javac getJavac(MavenProject module) {
+        return javacs.computeIfAbsent(module, key -> {
+            try {
+                File classesDir = classesDirs.get(module);
+                if (!classesDir.exists() && !classesDir.mkdirs()) {
+                    throw new IOException("Failed to create " + classesDir);
+                }
+                return new Javac(generatedClassesPath, getModuleClasspath(module), classesDir, bootstrap, cacheClasspathListings);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to set up javac for module " + module.getId(), e);
+            }
+        });
+    }
+
+    /**
+     * Returns the classpath of the given module: its own output directory, the output directories of the modules it
+     * depends on, in place of their artifacts, and all its other artifacts
+     * @param module
+     * @return
+     */
+    private List<File> getModuleClasspath(MavenProject module) {
+        List<File> toReturn = new ArrayList<>();
+        toReturn.add(classesDirs.get(module));
+        moduleDependencies.get(module).forEach(dependency -> toReturn.add(classesDirs.get(dependency)));
+        for (Artifact artifact : module.getArtifacts()) {
+            boolean reactorArtifact = moduleDependencies.get(module).stream()
+                    .anyMatch(dependency -> dependency.getGroupId().equals(artifact.getGroupId()) && dependency.getArtifactId().equals(artifact.getArtifactId()));
+            if (!reactorArtifact && artifact.getFile() != null) {
+                toReturn.add(artifact.getFile());
+            }
+        }
+        return toReturn;
+    }
+
+    private static String getModuleId(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+}
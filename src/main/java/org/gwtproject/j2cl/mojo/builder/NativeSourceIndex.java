@@ -0,0 +1,314 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.j2cl.common.FrontendUtils;
+import com.google.j2cl.generator.NativeJavaScriptFile;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Index of the <code>.native.js</code> files, mapping the path of a java file relative to its source root (without
+ * extension, e.g. <code>org/foo/Bar</code>) to its native companions, so that the native sources of a round are
+ * looked up from the sources to recompile instead of walking the source directories.
+ * <p>
+ * Native files are indexed inside the source roots, the resource roots and the dependency jars, the latter being
+ * used only for the java files without a native companion in the roots; their entries are extracted inside
+ * <b>extractDir</b> the first time they are needed.
+ * <p>
+ * The index is built on first use, and then kept up to date by {@link #update(Collection)} with the changed paths
+ * reported by the watcher, by {@link #updateJar(File)} with the replaced jars, or built again after
+ * {@link #invalidate()} when changes are not known (e.g. while polling).
+ */
+class NativeSourceIndex {
+
+    private final static Logger LOGGER = Logger.getLogger(NativeSourceIndex.class.getName());
+
+    private final List<Path> javaRoots;
+    private final List<Path> nativeRoots;
+    private final List<File> jars;
+    private final Path extractDir;
+    private final Map<String, Map<Path, FrontendUtils.FileInfo>> rootNatives = new HashMap<>();
+    private final Map<String, Map<File, String>> jarNatives = new HashMap<>();
+    private final Map<File, Set<String>> jarKeys = new HashMap<>();
+    private final Map<String, FrontendUtils.FileInfo> extracted = new HashMap<>();
+    private boolean rootsIndexed;
+    private boolean jarsIndexed;
+
+    /**
+     * @param javaRoots the roots of the java sources, generated ones included
+     * @param nativeRoots the roots to look for native files in, i.e. the source and resource ones
+     * @param jars the dependency jars to look for native files in
+     * @param extractDir the directory the native files of the jars are extracted to
+     */
+    NativeSourceIndex(Collection<Path> javaRoots, Collection<Path> nativeRoots, Collection<File> jars, Path extractDir) {
+        this.javaRoots = normalize(javaRoots);
+        this.nativeRoots = normalize(nativeRoots);
+        this.jars = new ArrayList<>(jars);
+        this.extractDir = extractDir;
+    }
+
+    /**
+     * Returns the resource roots of the given projects
+     * @param mavenProjects
+     * @return
+     */
+    static List<Path> getResourceRoots(Collection<MavenProject> mavenProjects) {
+        List<Path> toReturn = new ArrayList<>();
+        for (MavenProject mavenProject : mavenProjects) {
+            for (Resource resource : mavenProject.getResources()) {
+                if (resource.getDirectory() != null) {
+                    toReturn.add(Paths.get(resource.getDirectory()));
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the native companions of the given java files
+     * @param javaFiles
+     * @return
+     * @throws IOException
+     */
+    synchronized List<FrontendUtils.FileInfo> getNativeSources(Collection<FrontendUtils.FileInfo> javaFiles) throws IOException {
+        indexRoots();
+        indexJars();
+        Map<String, FrontendUtils.FileInfo> toReturn = new LinkedHashMap<>();
+        for (FrontendUtils.FileInfo javaFile : javaFiles) {
+            String key = getKey(javaRoots, Paths.get(javaFile.sourcePath()), ".java");
+            if (key == null) {
+                continue;
+            }
+            Map<Path, FrontendUtils.FileInfo> natives = rootNatives.get(key);
+            if (natives != null) {
+                natives.values().forEach(fileInfo -> toReturn.put(fileInfo.sourcePath(), fileInfo));
+                continue;
+            }
+            Map<File, String> jarEntries = jarNatives.get(key);
+            if (jarEntries != null && !jarEntries.isEmpty()) {
+                Map.Entry<File, String> jarEntry = jarEntries.entrySet().iterator().next();
+                FrontendUtils.FileInfo fileInfo = extract(jarEntry.getKey(), jarEntry.getValue());
+                toReturn.put(fileInfo.sourcePath(), fileInfo);
+            }
+        }
+        return new ArrayList<>(toReturn.values());
+    }
+
+    /**
+     * Update the index with the given changed (created, modified or deleted) paths, ignoring the ones that are not
+     * native files inside the native roots
+     * @param changedPaths
+     * @return the java files whose native companions changed, to be transpiled again, eventually empty
+     */
+    synchronized Set<String> update(Collection<Path> changedPaths) {
+        Set<String> toReturn = new LinkedHashSet<>();
+        for (Path changedPath : changedPaths) {
+            if (!changedPath.toString().endsWith(NativeJavaScriptFile.NATIVE_EXTENSION)) {
+                continue;
+            }
+            Path path = changedPath.toAbsolutePath().normalize();
+            Path root = getRoot(nativeRoots, path);
+            if (root == null) {
+                continue;
+            }
+            String key = getKey(root, path, NativeJavaScriptFile.NATIVE_EXTENSION);
+            if (rootsIndexed) {
+                if (Files.isRegularFile(path)) {
+                    rootNatives.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(path, createFileInfo(root, path));
+                } else {
+                    Map<Path, FrontendUtils.FileInfo> natives = rootNatives.get(key);
+                    if (natives != null && natives.remove(path) != null && natives.isEmpty()) {
+                        rootNatives.remove(key);
+                    }
+                }
+            }
+            for (Path javaRoot : javaRoots) {
+                Path javaFile = javaRoot.resolve(key + ".java");
+                if (Files.isRegularFile(javaFile)) {
+                    toReturn.add(javaFile.toString());
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Index again the native files of the given jar, e.g. after it has been replaced
+     * @param jar
+     */
+    synchronized void updateJar(File jar) {
+        if (!jarsIndexed || !jars.contains(jar)) {
+            return;
+        }
+        removeJar(jar);
+        indexJar(jar);
+    }
+
+    /**
+     * Discard the native files of the roots, to be indexed again on next use
+     */
+    synchronized void invalidate() {
+        rootNatives.clear();
+        rootsIndexed = false;
+    }
+
+    private void indexRoots() throws IOException {
+        if (rootsIndexed) {
+            return;
+        }
+        for (Path root : nativeRoots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.find(root, Integer.MAX_VALUE, (path, attrs) -> attrs.isRegularFile() && path.toString().endsWith(NativeJavaScriptFile.NATIVE_EXTENSION))) {
+                paths.forEach(path -> {
+                    String key = getKey(root, path, NativeJavaScriptFile.NATIVE_EXTENSION);
+                    rootNatives.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(path, createFileInfo(root, path));
+                });
+            }
+        }
+        rootsIndexed = true;
+    }
+
+    private void indexJars() {
+        if (jarsIndexed) {
+            return;
+        }
+        jars.forEach(this::indexJar);
+        jarsIndexed = true;
+    }
+
+    private void indexJar(File jar) {
+        if (!jar.isFile()) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.endsWith(NativeJavaScriptFile.NATIVE_EXTENSION)) {
+                    String key = name.substring(0, name.length() - NativeJavaScriptFile.NATIVE_EXTENSION.length());
+                    jarNatives.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(jar, name);
+                    keys.add(key);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to look for native sources in " + jar + ": " + e.getMessage());
+        }
+        jarKeys.put(jar, keys);
+    }
+
+    private void removeJar(File jar) {
+        Set<String> keys = jarKeys.remove(jar);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Map<File, String> jarEntries = jarNatives.get(key);
+            if (jarEntries != null) {
+                String name = jarEntries.remove(jar);
+                extracted.remove(getExtractKey(jar, name));
+                if (jarEntries.isEmpty()) {
+                    jarNatives.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the native file of the given jar entry, extracting it if not done yet
+     * @param jar
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    private FrontendUtils.FileInfo extract(File jar, String name) throws IOException {
+        String extractKey = getExtractKey(jar, name);
+        FrontendUtils.FileInfo toReturn = extracted.get(extractKey);
+        if (toReturn != null) {
+            return toReturn;
+        }
+        Path target = extractDir.resolve(jar.getName() + "-" + DigestUtils.md5Hex(jar.getAbsolutePath())).resolve(name);
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null) {
+                throw new IOException("Missing " + name + " in " + jar);
+            }
+            Files.createDirectories(target.getParent());
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        toReturn = FrontendUtils.FileInfo.create(target.toString(), name);
+        extracted.put(extractKey, toReturn);
+        return toReturn;
+    }
+
+    private static String getExtractKey(File jar, String name) {
+        return jar.getAbsolutePath() + "!" + name;
+    }
+
+    private static FrontendUtils.FileInfo createFileInfo(Path root, Path path) {
+        return FrontendUtils.FileInfo.create(path.toString(), root.relativize(path).toString());
+    }
+
+    /**
+     * Returns the key of the given path, i.e. its path relative to the deepest of the given roots, without the given
+     * extension
+     * @param roots
+     * @param path
+     * @param extension
+     * @return the key, or <code>null</code> if the path does not belong to any of the roots
+     */
+    private static String getKey(List<Path> roots, Path path, String extension) {
+        Path normalized = path.toAbsolutePath().normalize();
+        Path root = getRoot(roots, normalized);
+        return root != null ? getKey(root, normalized, extension) : null;
+    }
+
+    private static String getKey(Path root, Path path, String extension) {
+        String relative = root.relativize(path).toString().replace(File.separatorChar, '/');
+        return relative.endsWith(extension) ? relative.substring(0, relative.length() - extension.length()) : relative;
+    }
+
+    private static Path getRoot(List<Path> roots, Path path) {
+        return roots.stream()
+                .filter(path::startsWith)
+                .max(Comparator.comparingInt(Path::getNameCount))
+                .orElse(null);
+    }
+
+    private static List<Path> normalize(Collection<Path> roots) {
+        List<Path> toReturn = new ArrayList<>();
+        for (Path root : roots) {
+            Path normalized = root.toAbsolutePath().normalize();
+            if (!toReturn.contains(normalized)) {
+                toReturn.add(normalized);
+            }
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,186 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Remote tier of the jszip cache, over plain HTTP: entries are downloaded with <code>GET</code> and uploaded with
+ * <code>PUT</code>, so that any server accepting both (e.g. a WebDAV folder, or a generic artifact repository) works.
+ * <p>
+ * Entries are keyed on the toolchain and on the md5 of the jar, as <code>&lt;url&gt;/&lt;toolchain md5&gt;/&lt;jar
+ * md5&gt;-&lt;jar name&gt;.js.zip</code>, each one with a <code>.md5</code> companion holding its checksum: downloads
+ * are streamed to disk and discarded if they do not match it.
+ * <p>
+ * The remote cache is never required: any failure is logged and handled as a miss.
+ */
+class RemoteJsZipCache {
+
+    private final static Logger LOGGER = Logger.getLogger(RemoteJsZipCache.class.getName());
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+
+    private final String baseUrl;
+    private final boolean push;
+
+    /**
+     * @param url the base url of the remote cache
+     * @param toolchain the toolchain the entries are built with, see {@link JsZipCache#getToolchain()}
+     * @param push <code>true</code> to upload the entries built locally
+     */
+    RemoteJsZipCache(String url, String toolchain, boolean push) {
+        this.baseUrl = (url.endsWith("/") ? url : url + "/") + DigestUtils.md5Hex(toolchain) + "/";
+        this.push = push;
+        LOGGER.info("Remote jszip cache " + baseUrl + (push ? ", pushing" : ""));
+    }
+
+    /**
+     * Download the given entry to the given file, verifying its checksum
+     * @param name the name of the entry, i.e. of the jszip
+     * @param target
+     * @return <code>true</code> if the entry has been downloaded, <code>false</code> if it is missing or broken
+     */
+    boolean fetch(String name, File target) {
+        long startTime = System.currentTimeMillis();
+        try {
+            byte[] expected = get(name + ".md5");
+            if (expected == null) {
+                return false;
+            }
+            HttpURLConnection connection = open(name, "GET");
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    return false;
+                }
+                MessageDigest digest = DigestUtils.getMd5Digest();
+                try (InputStream inputStream = new DigestInputStream(connection.getInputStream(), digest)) {
+                    Files.copy(inputStream, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                String actual = Hex.encodeHexString(digest.digest());
+                if (!actual.equals(new String(expected, StandardCharsets.UTF_8).trim())) {
+                    LOGGER.warning("Discarding " + name + " from the remote jszip cache: checksum mismatch");
+                    Files.deleteIfExists(target.toPath());
+                    return false;
+                }
+            } finally {
+                connection.disconnect();
+            }
+            LOGGER.info("Fetched " + name + " from the remote jszip cache in " + (System.currentTimeMillis() - startTime) + "millis");
+            return true;
+        } catch (IOException e) {
+            LOGGER.warning("Failed to fetch " + name + " from the remote jszip cache: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Upload the given jszip, built locally, followed by its checksum, if pushing is enabled
+     * @param name the name of the entry, i.e. of the jszip
+     * @param jszip
+     */
+    void store(String name, File jszip) {
+        if (!push) {
+            return;
+        }
+        try {
+            String md5;
+            try (InputStream inputStream = Files.newInputStream(jszip.toPath())) {
+                md5 = DigestUtils.md5Hex(inputStream);
+            }
+            put(name, jszip.length(), "application/zip", outputStream -> Files.copy(jszip.toPath(), outputStream));
+            // the checksum last, so that the entry is never fetched before being complete
+            byte[] checksum = md5.getBytes(StandardCharsets.UTF_8);
+            put(name + ".md5", checksum.length, "text/plain", outputStream -> outputStream.write(checksum));
+            LOGGER.info("Pushed " + name + " to the remote jszip cache");
+        } catch (IOException e) {
+            LOGGER.warning("Failed to push " + name + " to the remote jszip cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Upload the content written by the given <code>Content</code>, streamed with a fixed length, trying twice since
+     * a pooled connection may have been closed by the server in the meanwhile, and streamed requests are not retried
+     * automatically
+     * @param name
+     * @param length
+     * @param contentType
+     * @param content
+     * @throws IOException
+     */
+    private void put(String name, long length, String contentType, Content content) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            HttpURLConnection connection = open(name, "PUT");
+            try {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(length);
+                connection.setRequestProperty("Content-Type", contentType);
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    content.writeTo(outputStream);
+                }
+                int responseCode = connection.getResponseCode();
+                if (responseCode < 200 || responseCode >= 300) {
+                    throw new IOException("PUT " + name + " returned " + responseCode);
+                }
+                return;
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw failure;
+    }
+
+    private byte[] get(String name) throws IOException {
+        HttpURLConnection connection = open(name, "GET");
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            ByteArrayOutputStream toReturn = new ByteArrayOutputStream();
+            try (InputStream inputStream = connection.getInputStream()) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    toReturn.write(buffer, 0, read);
+                }
+            }
+            return toReturn.toByteArray();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String name, String method) throws IOException {
+        HttpURLConnection toReturn = (HttpURLConnection) new URL(baseUrl + URLEncoder.encode(name, "UTF-8").replace("+", "%20")).openConnection();
+        toReturn.setRequestMethod(method);
+        toReturn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        toReturn.setReadTimeout(READ_TIMEOUT_MILLIS);
+        toReturn.setUseCaches(false);
+        return toReturn;
+    }
+
+    /**
+     * The content of a <code>PUT</code>, written every time the request is attempted
+     */
+    private interface Content {
+
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
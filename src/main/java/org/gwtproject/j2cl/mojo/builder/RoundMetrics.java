@@ -0,0 +1,324 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Structured metrics of the compilation rounds: for each round, the wall and CPU time of each phase with the number
+ * of files it handled, the cache hits and misses, the bytes read and written and the peak heap.
+ * <p>
+ * Each completed round is appended as a JSON object, one per line, to the report file (i.e.
+ * <code>target/j2cl-metrics.jsonl</code>), and is exposed through JMX by {@link #register()}.
+ * <p>
+ * CPU time is the one of the whole process, so that the phases running on several threads are fully accounted;
+ * bytes are the ones read and written by the whole process, and are only available on Linux (-1 otherwise); peak
+ * heap is the sum of the peaks of the heap memory pools.
+ */
+class RoundMetrics implements RoundMetricsMXBean {
+
+    private final static Logger LOGGER = Logger.getLogger(RoundMetrics.class.getName());
+
+    private static final String OBJECT_NAME = "org.gwtproject.j2cl:type=RoundMetrics";
+    private static final Path PROC_IO = Paths.get("/proc/self/io");
+
+    private final Path reportFile;
+    private Round current;
+    private Round last;
+    private int roundCount;
+
+    /**
+     * @param reportFile the file the rounds are appended to
+     */
+    RoundMetrics(Path reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Start a round with the given name, unless one is already started (e.g. by a phase run before the
+     * compilation, like the transpilation of the replaced dependencies), in which case it is just renamed
+     * @param name
+     */
+    synchronized void startRound(String name) {
+        if (current == null) {
+            current = new Round(name);
+        } else {
+            current.name = name;
+        }
+    }
+
+    /**
+     * Start timing the given phase, inside the current round, started if needed
+     * @param name
+     * @return
+     */
+    Phase startPhase(String name) {
+        synchronized (this) {
+            if (current == null) {
+                current = new Round("round");
+            }
+        }
+        return new Phase(name);
+    }
+
+    /**
+     * Add the given amount to the given counter of the current round, started if needed
+     * @param name
+     * @param delta
+     */
+    synchronized void count(String name, long delta) {
+        if (current == null) {
+            current = new Round("round");
+        }
+        current.counters.merge(name, delta, Long::sum);
+    }
+
+    /**
+     * Mark the current round as failed, even if no exception is thrown (e.g. closure errors)
+     */
+    synchronized void failed() {
+        if (current != null) {
+            current.succeeded = false;
+        }
+    }
+
+    /**
+     * Complete the current round, if any, appending it to the report file
+     * @param succeeded
+     */
+    void endRound(boolean succeeded) {
+        String json;
+        synchronized (this) {
+            if (current == null) {
+                return;
+            }
+            Round round = current;
+            current = null;
+            round.succeeded &= succeeded;
+            round.complete();
+            roundCount++;
+            round.number = roundCount;
+            last = round;
+            json = round.toJson();
+        }
+        try {
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            Files.write(reportFile, (json + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write " + reportFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Register this as the <code>RoundMetricsMXBean</code> of the platform <code>MBeanServer</code>, replacing the
+     * one of a previous build in the same JVM, if any
+     */
+    void register() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+            LOGGER.info("Round metrics available through JMX as " + OBJECT_NAME);
+        } catch (Exception e) {
+            LOGGER.warning("Failed to register the round metrics MXBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized int getRoundCount() {
+        return roundCount;
+    }
+
+    @Override
+    public synchronized boolean isLastRoundSucceeded() {
+        return last != null && last.succeeded;
+    }
+
+    @Override
+    public synchronized long getLastRoundMillis() {
+        return last != null ? last.wallMillis : 0;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getLastPhaseMillis() {
+        Map<String, Long> toReturn = new LinkedHashMap<>();
+        if (last != null) {
+            last.phases.forEach((name, stats) -> toReturn.put(name, stats.wallMillis));
+        }
+        return toReturn;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getLastCounters() {
+        return last != null ? new LinkedHashMap<>(last.counters) : Collections.emptyMap();
+    }
+
+    @Override
+    public synchronized String getLastRound() {
+        return last != null ? last.toJson() : "{}";
+    }
+
+    private synchronized void addPhase(String name, long wallMillis, long cpuMillis, int files) {
+        if (current == null) {
+            current = new Round("round");
+        }
+        PhaseStats stats = current.phases.computeIfAbsent(name, key -> new PhaseStats());
+        stats.count++;
+        stats.wallMillis += wallMillis;
+        stats.cpuMillis += cpuMillis;
+        stats.files += files;
+    }
+
+    /**
+     * Returns the CPU time of the whole process, in milliseconds, or -1 if not available
+     * @return
+     */
+    private static long getProcessCpuMillis() {
+        OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            long cpuNanos = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getProcessCpuTime();
+            return cpuNanos >= 0 ? cpuNanos / 1000000 : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the bytes read and written by the whole process so far, or -1 if not available
+     * @return
+     */
+    private static long[] getProcessIo() {
+        long[] toReturn = {-1, -1};
+        if (!Files.isReadable(PROC_IO)) {
+            return toReturn;
+        }
+        try {
+            List<String> lines = Files.readAllLines(PROC_IO, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith("rchar:")) {
+                    toReturn[0] = Long.parseLong(line.substring(6).trim());
+                } else if (line.startsWith("wchar:")) {
+                    toReturn[1] = Long.parseLong(line.substring(6).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not available
+        }
+        return toReturn;
+    }
+
+    /**
+     * A phase being timed, see {@link #startPhase(String)}
+     */
+    class Phase {
+
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startCpuMillis = getProcessCpuMillis();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Stop timing this phase, recording the given number of handled files
+         * @param files
+         */
+        void end(int files) {
+            long cpuMillis = startCpuMillis >= 0 ? getProcessCpuMillis() - startCpuMillis : -1;
+            addPhase(name, (System.nanoTime() - startNanos) / 1000000, cpuMillis, files);
+        }
+    }
+
+    private static class PhaseStats {
+
+        private int count;
+        private long wallMillis;
+        private long cpuMillis;
+        private long files;
+    }
+
+    private static class Round {
+
+        private final Instant started = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final long startCpuMillis = getProcessCpuMillis();
+        private final long[] startIo = getProcessIo();
+        private final Map<String, PhaseStats> phases = new LinkedHashMap<>();
+        private final Map<String, Long> counters = new LinkedHashMap<>();
+        private String name;
+        private int number;
+        private boolean succeeded = true;
+        private long wallMillis;
+        private long cpuMillis;
+
+        Round(String name) {
+            this.name = name;
+            ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+
+        void complete() {
+            wallMillis = (System.nanoTime() - startNanos) / 1000000;
+            cpuMillis = startCpuMillis >= 0 ? getProcessCpuMillis() - startCpuMillis : -1;
+            long[] io = getProcessIo();
+            counters.put("bytesRead", startIo[0] >= 0 && io[0] >= 0 ? io[0] - startIo[0] : -1);
+            counters.put("bytesWritten", startIo[1] >= 0 && io[1] >= 0 ? io[1] - startIo[1] : -1);
+            counters.put("peakHeapBytes", ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum());
+        }
+
+        String toJson() {
+            StringBuilder toReturn = new StringBuilder("{");
+            toReturn.append("\"round\":").append(number)
+                    .append(",\"name\":").append(quote(name))
+                    .append(",\"started\":").append(quote(started.toString()))
+                    .append(",\"succeeded\":").append(succeeded)
+                    .append(",\"wallMillis\":").append(wallMillis)
+                    .append(",\"cpuMillis\":").append(cpuMillis)
+                    .append(",\"phases\":{");
+            String separator = "";
+            for (Map.Entry<String, PhaseStats> entry : phases.entrySet()) {
+                PhaseStats stats = entry.getValue();
+                toReturn.append(separator).append(quote(entry.getKey()))
+                        .append(":{\"count\":").append(stats.count)
+                        .append(",\"wallMillis\":").append(stats.wallMillis)
+                        .append(",\"cpuMillis\":").append(stats.cpuMillis)
+                        .append(",\"files\":").append(stats.files)
+                        .append("}");
+                separator = ",";
+            }
+            toReturn.append("},\"counters\":{");
+            separator = "";
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                toReturn.append(separator).append(quote(entry.getKey())).append(":").append(entry.getValue());
+                separator = ",";
+            }
+            return toReturn.append("}}").toString();
+        }
+
+        private static String quote(String value) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link RoundMetrics} of the running build, registered as
+ * <code>org.gwtproject.j2cl:type=RoundMetrics</code> while <code>j2cl:run</code> is active
+ */
+public interface RoundMetricsMXBean {
+
+    /**
+     * Returns the number of rounds completed so far, the setup included
+     * @return
+     */
+    int getRoundCount();
+
+    /**
+     * Returns <code>true</code> if the last round succeeded
+     * @return
+     */
+    boolean isLastRoundSucceeded();
+
+    /**
+     * Returns the wall time of the last round, in milliseconds
+     * @return
+     */
+    long getLastRoundMillis();
+
+    /**
+     * Returns the wall time of each phase of the last round, in milliseconds
+     * @return
+     */
+    Map<String, Long> getLastPhaseMillis();
+
+    /**
+     * Returns the counters (files, cache hits and misses, bytes, heap) of the last round
+     * @return
+     */
+    Map<String, Long> getLastCounters();
+
+    /**
+     * Returns the last round as a JSON object, as written to the report file
+     * @return
+     */
+    String getLastRound();
+}
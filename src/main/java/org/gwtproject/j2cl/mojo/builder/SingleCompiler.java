@@ -1,26 +1,44 @@
 package org.gwtproject.j2cl.mojo.builder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.UncheckedIOException;
-import java.net.URI;
-import java.nio.file.FileSystem;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -32,7 +50,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.j2cl.common.FrontendUtils;
 import com.google.j2cl.common.Problems;
-import com.google.j2cl.generator.NativeJavaScriptFile;
 import com.google.j2cl.tools.gwtincompatible.JavaPreprocessor;
 import com.google.j2cl.transpiler.J2clTranspiler;
 import com.google.j2cl.transpiler.J2clTranspilerOptions;
@@ -42,7 +59,10 @@ import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.jscomp.PersistentInputStore;
 import org.gwtproject.j2cl.mojo.options.Gwt3Options;
+import org.gwtproject.j2cl.mojo.tools.ClassFileAbi;
+import org.gwtproject.j2cl.mojo.tools.DependencyIndex;
 import org.gwtproject.j2cl.mojo.tools.Javac;
+import org.gwtproject.j2cl.mojo.tools.SourceCompiler;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.maven.project.MavenProject;
 
@@ -66,18 +86,44 @@ public class SingleCompiler {
 
     private static Gwt3Options options;
     private static String intermediateJsPath;
-    private static Javac javac;
+    private static SourceCompiler javac;
+    private static JarManifest jarManifest;
+    private static JsZipCache jsZipCache;
+    private static RemoteJsZipCache remoteJsZipCache;
+    private static FailedDependencies failedDependencies;
+    private static RoundMetrics metrics;
+    private static Map<File, WatchedJar> watchedJars = new ConcurrentHashMap<>();
+    private static List<File> javacClasspath;
+    private static File workingDir;
     private static File generatedClassesPath;
     private static J2clTranspilerOptions.Builder baseJ2clArgs;
     private static List<String> baseClosureArgs;
     private static PersistentInputStore persistentInputStore;
     private static Map<String, MavenProject> baseDirProjectMap;
     private static Set<FrontendUtils.FileInfo> toRecompile = new HashSet<>(); // Using Set to avoid duplication
+    private static DependencyIndex dependencyIndex;
+    private static Path dependencyIndexPath;
+    private static boolean firstRound = true;
+    private static ClassFileAbi classFileAbi = new ClassFileAbi();
+    private static Map<String, String> moduleFingerprints;
+    private static Path moduleFingerprintsPath;
+    private static Set<MavenProject> projectsToFingerprint; // null when the DependencyIndex drives the recompilation
+    private static TranspileCache transpileCache;
+    private static String classpathHash;
+    private static List<Path> sourceRoots;
+    private static NativeSourceIndex nativeSourceIndex;
+    private static Map<String, JsDigest> jsDigests = new HashMap<>(); // only accessed by the thread running the round
+    private static Map<Path, Path> copiedJs = new HashMap<>(); // target -> source, persisted in copiedJsPath
+    private static Path copiedJsPath;
+    private static boolean hardLinkJs = true;
+    private static Map<String, String> generatedDigests = new HashMap<>(); // of the generated sources already transpiled
+    private static Map<String, String> pendingGeneratedDigests = new HashMap<>();
+    private static Map<String, DependencyIndex.Unit> generatedUnits = new HashMap<>(); // of this session, see getIndexableUnits
 
-    public static void run(Gwt3Options options, List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
+    public static void run(Gwt3Options options, List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
         LOGGER.setLevel(Level.INFO);
         LOGGER.info("Setup");
-        setup(options, orderedClasspath, targetPath, baseDirProjectMap);
+        setup(options, orderedClasspath, dependencyGraph, targetPath, baseDirProjectMap);
         LOGGER.info("Do compilation");
         List<FrontendUtils.FileInfo> modifiedJavaFiles = getModifiedJavaFiles(FileTime.fromMillis(0));
         try {
@@ -87,10 +133,12 @@ public class SingleCompiler {
         }
     }
 
-    public static void setup(Gwt3Options options, List<File> orderedClasspath, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
+    public static void setup(Gwt3Options options, List<File> orderedClasspath, Map<File, Set<File>> dependencyGraph, File targetPath, Map<String, MavenProject> baseDirProjectMap) throws Exception {
         SingleCompiler.options = options;
         SingleCompiler.baseDirProjectMap = baseDirProjectMap;
         LOGGER.setLevel(Level.INFO);
+        metrics = new RoundMetrics(targetPath.toPath().resolve("j2cl-metrics.jsonl"));
+        metrics.startRound("setup");
         intermediateJsPath = options.getIntermediateJsPath();
         LOGGER.info("intermediate js from j2cl path " + intermediateJsPath);
         generatedClassesPath = createTempDir(targetPath);//TODO allow this to be configurable
@@ -104,7 +152,33 @@ public class SingleCompiler {
         }
         orderedClasspath.add(new File("src/main/java/"));
 
-        javac = new Javac(generatedClassesPath, orderedClasspath, classesDirFile, options.getBootstrapClasspath());
+        javacClasspath = orderedClasspath;
+        workingDir = targetPath;
+        List<Path> projectRoots = Stream.concat(options.getSourceDir().stream(), baseDirProjectMap.keySet().stream())
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        nativeSourceIndex = new NativeSourceIndex(
+                Stream.concat(projectRoots.stream(), Stream.of(generatedClassesPath.toPath())).collect(Collectors.toList()),
+                Stream.concat(projectRoots.stream(), NativeSourceIndex.getResourceRoots(baseDirProjectMap.values()).stream()).collect(Collectors.toList()),
+                orderedClasspath.stream().filter(file -> file.getName().endsWith(".jar")).collect(Collectors.toList()),
+                targetPath.toPath().resolve("j2cl-native-sources"));
+        javac = createJavac();
+        dependencyIndexPath = targetPath.toPath().resolve("j2cl-dependency-index");
+        dependencyIndex = readDependencyIndex(dependencyIndexPath);
+        moduleFingerprintsPath = targetPath.toPath().resolve("j2cl-module-fingerprints");
+        moduleFingerprints = readModuleFingerprints(moduleFingerprintsPath);
+        copiedJsPath = targetPath.toPath().resolve("j2cl-copied-js");
+        copiedJs = readCopiedJs(copiedJsPath);
+        sourceRoots = Stream.concat(options.getSourceDir().stream(), baseDirProjectMap.keySet().stream())
+                .map(sourceRoot -> Paths.get(DependencyIndex.normalize(sourceRoot)))
+                .distinct()
+                .collect(Collectors.toList());
+        if (options.getTranspileCacheSize() > 0) {
+            transpileCache = new TranspileCache(Paths.get(options.getJsZipCacheDir(), "units"), options.getTranspileCacheSize() * 1024L * 1024L);
+            classpathHash = hashClasspath(orderedClasspath);
+        }
+        // the sources deleted while not running
+        removeDeletedSources(dependencyIndex.getMissing());
 
         // put all j2clClasspath items into a list, we'll copy each time and add generated js
         baseJ2clArgs = J2clTranspilerOptions.newBuilder()
@@ -132,6 +206,10 @@ public class SingleCompiler {
         //baseClosureArgs.add("--source_map_location_mapping");
         //baseClosureArgs.add(options.getOutputJsPathDir()+"/sources");
 
+        if (options.getTranspileThreads() > 1) {
+            LOGGER.warning("transpileThreads > 1 runs J2CL concurrently, which it does not document as thread-safe: set it back to 1 if transpilation fails or its output differs");
+        }
+
         if (compilationLevel == CompilationLevel.BUNDLE) {
             // support BUNDLE mode, with no remote fetching for dependencies)
             baseClosureArgs.add("--define");
@@ -168,35 +246,352 @@ public class SingleCompiler {
         baseClosureArgs.add(intermediateJsPath + "/**/*.js");//precludes default package
 
         //pre-transpile all dependency sources to our cache dir, add those cached items to closure args
-        List<String> transpiledDependencies = progressivelyHandleDependencies(orderedClasspath, baseJ2clArgs, persistentInputStore, options.getBytecodeClasspath(), targetPath);
+        jsZipCache = new JsZipCache(Paths.get(options.getJsZipCacheDir()), options.getJsZipCacheSize() * 1024L * 1024L, options.isStoredJsZips());
+        if (options.getRemoteCacheUrl() != null && !options.getRemoteCacheUrl().isEmpty()) {
+            remoteJsZipCache = new RemoteJsZipCache(options.getRemoteCacheUrl(), jsZipCache.getToolchain(), options.isRemoteCachePush());
+        }
+        // the results of the jars, and their failures, depend on the toolchain as well; the results also depend on
+        // the format, that shares the toolchain directory
+        jarManifest = new JarManifest(jsZipCache.getDir().resolve(options.isStoredJsZips() ? "jar-manifest-stored" : "jar-manifest"));
+        failedDependencies = new FailedDependencies(jsZipCache.getDir(), options.isRetryFailedDependencies());
+        RoundMetrics.Phase phase = metrics.startPhase("dependencies");
+        List<String> transpiledDependencies = progressivelyHandleDependencies(orderedClasspath, dependencyGraph, baseJ2clArgs, persistentInputStore, options.getBytecodeClasspath(), targetPath);
+        phase.end(orderedClasspath.size());
+        jarManifest.write();
+        jsZipCache.evictAndWrite();
+        jsZipCache.recordTo(metrics);
+        failedDependencies.report();
         baseClosureArgs.addAll(transpiledDependencies);
+        metrics.endRound(true);
+    }
+
+    /**
+     * Start timing a compilation round, see {@link RoundMetrics}
+     */
+    public static void startRound() {
+        metrics.startRound("compile");
+    }
+
+    /**
+     * Complete the current compilation round, appending its metrics to <code>target/j2cl-metrics.jsonl</code>
+     * @param succeeded
+     */
+    public static void endRound(boolean succeeded) {
+        metrics.endRound(succeeded);
+    }
+
+    /**
+     * Expose the round metrics through JMX, see {@link RoundMetricsMXBean}
+     */
+    public static void registerMetrics() {
+        metrics.register();
+    }
+
+    private static SourceCompiler createJavac() throws IOException {
+        if (options.getModuleThreads() > 0 && baseDirProjectMap.values().stream().map(MavenProject::getId).distinct().count() > 1) {
+            return new ModuleCompiler(generatedClassesPath, baseDirProjectMap, new File(workingDir, "module-classes"), options.getBootstrapClasspath(), options.isCacheClasspathListings(), options.getModuleThreads());
+        }
+        return new Javac(generatedClassesPath, javacClasspath, options.getClassesDir(), options.getBootstrapClasspath(), options.isCacheClasspathListings());
+    }
+
+    /**
+     * Returns <code>true</code> if any of the transpiled dependency jars has been replaced since then
+     * @return
+     */
+    public static boolean hasChangedJars() {
+        return watchedJars.values().stream().anyMatch(WatchedJar::isChanged);
+    }
+
+    /**
+     * Transpile again the dependency jars replaced since they have been transpiled (e.g. a SNAPSHOT republished by a
+     * project outside the reactor), swapping their jszip in the closure arguments and in the
+     * <code>PersistentInputStore</code>
+     * @return the project sources referencing the types of the replaced jars, to be compiled again, eventually empty
+     */
+    public static List<FrontendUtils.FileInfo> refreshChangedJars() {
+        List<File> changedJars = watchedJars.values().stream()
+                .filter(WatchedJar::isChanged)
+                .map(watchedJar -> watchedJar.jar)
+                .collect(Collectors.toList());
+        if (changedJars.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LOGGER.info("refreshChangedJars");
+        long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("refreshChangedJars");
+        Set<String> changedTypes = new HashSet<>();
+        for (File jar : changedJars) {
+            if (!jar.isFile()) {
+                // removed, or replaced by a move not done yet: handled again when it shows up
+                watchedJars.put(jar, new WatchedJar(jar, watchedJars.get(jar).jszipOut));
+                continue;
+            }
+            try {
+                List<String> classpath = new ArrayList<>(options.getBytecodeClasspath());
+                if (!classpath.contains(jar.getAbsolutePath())) {
+                    classpath.add(jar.getAbsolutePath());
+                }
+                String jszipOut = populateHandleDependencies(jar, baseJ2clArgs.build().toBuilder().setClasspaths(classpath), workingDir);
+                replaceTranspiledDependency(watchedJars.get(jar).jszipOut, jszipOut);
+                watchedJars.put(jar, new WatchedJar(jar, jszipOut));
+                changedTypes.addAll(getJarTypes(jar));
+                nativeSourceIndex.updateJar(jar);
+                LOGGER.info("Transpiled again " + jar);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warning("Failed to transpile again " + jar + ": " + e.getMessage());
+                // keep the previous output, until the jar is replaced again
+                watchedJars.put(jar, new WatchedJar(jar, watchedJars.get(jar).jszipOut));
+            }
+        }
+        jarManifest.write();
+        jsZipCache.evictAndWrite();
+        jsZipCache.recordTo(metrics);
+        failedDependencies.report();
+        List<FrontendUtils.FileInfo> toReturn = new ArrayList<>();
+        if (!changedTypes.isEmpty()) {
+            try {
+                // javac keeps the jars open, and its classpath listings cached
+                javac = createJavac();
+            } catch (IOException e) {
+                LOGGER.warning("Failed to reset javac: " + e.getMessage());
+            }
+            dependencyIndex.getReferencingUnits(changedTypes).forEach(sourcePath -> toReturn.add(FrontendUtils.FileInfo.create(sourcePath, sourcePath)));
+        }
+        phase.end(changedJars.size());
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Replaced " + changedJars.size() + " jars, " + toReturn.size() + " sources to compile again");
+        LOGGER.info("refreshChangedJars: " + endTime + "millis");
+        return toReturn;
+    }
+
+    /**
+     * Returns the indexed sources that do not exist anymore, for when their deletion has not been notified (e.g.
+     * while polling)
+     * @return
+     */
+    public static Set<String> getDeletedSources() {
+        return dependencyIndex.getMissing();
+    }
+
+    /**
+     * Forget the given deleted sources: their javac and J2CL outputs are removed, so that closure does not bundle
+     * them anymore, they are removed from the <code>DependencyIndex</code>, and the sources referencing their types
+     * are compiled again in the next round
+     * @param deletedPaths
+     * @return the sources referencing the types of the deleted ones, eventually empty
+     */
+    public static List<FrontendUtils.FileInfo> removeDeletedSources(Collection<String> deletedPaths) {
+        final Set<String> deleted = deletedPaths.stream()
+                .map(DependencyIndex::normalize)
+                .filter(sourcePath -> !Files.exists(Paths.get(sourcePath)) && dependencyIndex.get(sourcePath) != null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (deleted.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LOGGER.info("removeDeletedSources");
+        long startTime = System.currentTimeMillis();
+        final Set<String> deletedTypes = new HashSet<>();
+        final Map<Path, List<Path>> listings = new HashMap<>();
+        int removed = 0;
+        for (String sourcePath : deleted) {
+            DependencyIndex.Unit unit = dependencyIndex.get(sourcePath);
+            deletedTypes.addAll(unit.getDeclaredTypes());
+            Path sourceRoot = getSourceRoot(sourcePath);
+            if (sourceRoot == null) {
+                continue;
+            }
+            Path packagePath = sourceRoot.relativize(Paths.get(sourcePath)).getParent();
+            Set<String> topLevelNames = getTopLevelNames(unit, packagePath);
+            for (Path outputDir : Arrays.asList(Paths.get(intermediateJsPath), javac.getClassesDir(sourcePath).toPath())) {
+                try {
+                    for (Path output : getUnitOutputs(outputDir, packagePath, topLevelNames, listings)) {
+                        if (Files.deleteIfExists(outputDir.resolve(output))) {
+                            removed++;
+                        }
+                    }
+                } catch (IOException e) {
+                    LOGGER.warning("Failed to remove the outputs of " + sourcePath + ": " + e.getMessage());
+                }
+            }
+        }
+        invalidateModuleFingerprints(deleted);
+        dependencyIndex.remove(deleted);
+        writeDependencyIndex();
+        Set<String> dependents = dependencyIndex.getReferencingUnits(deletedTypes);
+        List<FrontendUtils.FileInfo> toReturn = dependents.stream()
+                .map(sourcePath -> FrontendUtils.FileInfo.create(sourcePath, sourcePath))
+                .collect(Collectors.toList());
+        toRecompile.addAll(toReturn);
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Removed " + deleted.size() + " deleted sources (" + removed + " outputs), " + toReturn.size() + " sources to compile again");
+        LOGGER.info("removeDeletedSources: " + endTime + "millis");
+        return toReturn;
+    }
+
+    /**
+     * Update the index of the native sources with the given changed paths, as reported by the watcher
+     * @param changedPaths
+     * @return the java files whose native companions changed, eventually empty
+     */
+    public static Set<String> updateNativeSources(Collection<Path> changedPaths) {
+        return nativeSourceIndex.update(changedPaths);
+    }
+
+    /**
+     * Index again the native sources on next use, when their changes are not known (e.g. while polling)
+     */
+    public static void invalidateNativeSources() {
+        nativeSourceIndex.invalidate();
+    }
+
+    /**
+     * Returns the directories containing the transpiled dependency jars, to be watched for changes
+     * @return
+     */
+    public static Set<Path> getWatchedJarDirectories() {
+        return watchedJars.keySet().stream()
+                .map(jar -> jar.getAbsoluteFile().getParentFile().toPath().normalize())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Replace, in <code>baseClosureArgs</code>, the jszip of a dependency with its new version, adding the latter to
+     * the <code>PersistentInputStore</code> with the digest of its content
+     * @param oldJszipOut
+     * @param newJszipOut
+     */
+    private static void replaceTranspiledDependency(String oldJszipOut, String newJszipOut) {
+        int index = oldJszipOut != null ? baseClosureArgs.indexOf(oldJszipOut) : -1;
+        if (index > 0 && "--jszip".equals(baseClosureArgs.get(index - 1))) {
+            if (newJszipOut != null) {
+                baseClosureArgs.set(index, newJszipOut);
+            } else {
+                baseClosureArgs.subList(index - 1, index + 1).clear();
+            }
+        } else if (newJszipOut != null) {
+            baseClosureArgs.add("--jszip");
+            baseClosureArgs.add(newJszipOut);
+        }
+        if (newJszipOut != null) {
+            persistentInputStore.addInput(newJszipOut, hash(new File(newJszipOut)));
+        }
+    }
+
+    /**
+     * Returns the qualified names of the types inside the given jar, of both its class and its source files
+     * @param jar
+     * @return
+     * @throws IOException
+     */
+    private static Set<String> getJarTypes(File jar) throws IOException {
+        Set<String> toReturn = new HashSet<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String name = entry.getName();
+                int extension = name.endsWith(".class") ? ".class".length() : name.endsWith(".java") ? ".java".length() : 0;
+                if (extension > 0) {
+                    toReturn.add(name.substring(0, name.length() - extension).replace('/', '.').replace('$', '.'));
+                }
+            }
+        }
+        return toReturn;
     }
 
     public static void preCompile(List<FrontendUtils.FileInfo> modifiedJavaFiles, File tempDir) throws Exception {
         // TODO Do that on a per-module basis
         LOGGER.setLevel(Level.INFO);
+        javac.clearGeneratedSources();
         final List<FrontendUtils.FileInfo> allSourcesToRecompile = getAllSourcesToRecompile(modifiedJavaFiles);
+        metrics.count("modifiedFiles", modifiedJavaFiles.size());
+        if (allSourcesToRecompile.isEmpty()) {
+            // the plain js files are not in the transpile cache, e.g. after a clean with everything restored
+            copyJs(allSourcesToRecompile);
+            LOGGER.info("Nothing to compile");
+            firstRound = false;
+            return;
+        }
         //
-        File processedZip = preProcessing(allSourcesToRecompile, tempDir);
-        //
-        compiling(allSourcesToRecompile);
-        //
-        List<FrontendUtils.FileInfo> nativeSources = getNativeSources(allSourcesToRecompile);
-        //
-        copyJs(allSourcesToRecompile);
-        //
-        addGeneratedSources(allSourcesToRecompile);
+        final List<FrontendUtils.FileInfo> failedSources;
+        Path processedDir = Files.createTempDirectory(tempDir.toPath(), "preprocessed");
+        try {
+            // with modules compiled one by one, each one may be transpiled while javac goes on with the others
+            final RoundPipeline pipeline = options.isPipelineStages() && javac instanceof ModuleCompiler ? new RoundPipeline(processedDir) : null;
+            if (pipeline != null) {
+                ((ModuleCompiler) javac).setModuleListener(pipeline::submit);
+                try {
+                    failedSources = compiling(allSourcesToRecompile);
+                } finally {
+                    ((ModuleCompiler) javac).setModuleListener(null);
+                    pipeline.finish();
+                }
+                if (!pipeline.getErrors().isEmpty()) {
+                    String errorMessage = "Error while transpiling: " + String.join(", ", pipeline.getErrors());
+                    LOGGER.severe(errorMessage);
+                    // Store files to recompile next attempt
+                    toRecompile.addAll(allSourcesToRecompile);
+                    throw new RuntimeException(errorMessage);
+                }
+                LOGGER.info("Transpiled " + pipeline.getTranspiled().size() + " files while compiling");
+            } else {
+                failedSources = compiling(allSourcesToRecompile);
+            }
+            //
+            List<FrontendUtils.FileInfo> processedSources = preProcessing(allSourcesToRecompile, processedDir);
+            //
+            copyJs(allSourcesToRecompile);
+            //
+            addGeneratedSources(allSourcesToRecompile, processedSources);
+            //
+            List<FrontendUtils.FileInfo> toTranspile = allSourcesToRecompile;
+            List<FrontendUtils.FileInfo> processedToTranspile = processedSources;
+            if (pipeline != null) {
+                // only the ones not transpiled by the pipeline, e.g. the generated ones
+                toTranspile = new ArrayList<>();
+                processedToTranspile = new ArrayList<>();
+                for (int i = 0; i < allSourcesToRecompile.size(); i++) {
+                    if (!pipeline.getTranspiled().contains(allSourcesToRecompile.get(i))) {
+                        toTranspile.add(allSourcesToRecompile.get(i));
+                        processedToTranspile.add(processedSources.get(i));
+                    }
+                }
+            }
+            if (!toTranspile.isEmpty()) {
+                //
+                List<FrontendUtils.FileInfo> nativeSources = getNativeSources(toTranspile);
+                //
+                J2clTranspilerOptions.Builder j2clArgs = getBuilder(nativeSources, processedToTranspile);
+                //
+                if (options.getTranspileThreads() > 1) {
+                    transpileShards(j2clArgs, toTranspile, processedToTranspile, nativeSources, processedDir);
+                } else {
+                    transpile(j2clArgs, toTranspile);
+                }
+            }
+        } finally {
+            deleteRecursively(processedDir);
+        }
         //
-        J2clTranspilerOptions.Builder j2clArgs = getBuilder(nativeSources, processedZip);
+        generatedDigests.putAll(pendingGeneratedDigests);
         //
-        transpile(j2clArgs, processedZip, allSourcesToRecompile);
+        if (transpileCache != null) {
+            storeCachedUnits(allSourcesToRecompile);
+        }
+        metrics.count("compiledFiles", allSourcesToRecompile.size());
+        if (!failedSources.isEmpty()) {
+            metrics.count("failedFiles", failedSources.size());
+            throw new RuntimeException("Failed to compile " + failedSources.size() + " files");
+        }
     }
 
     public static void closure() throws IOException {
         // TODO Store/cache results of previous methods to reuse in next one
         // TODO Move to a specific method so that it is called only when the above are successfully run over the original modified sources and depndent ones
         long jscompStarted = System.currentTimeMillis();
-        if (!jscomp(baseClosureArgs, persistentInputStore, intermediateJsPath)) {
+        RoundMetrics.Phase phase = metrics.startPhase("jscomp");
+        boolean succeeded = jscomp(baseClosureArgs, persistentInputStore, intermediateJsPath);
+        phase.end(jsDigests.size());
+        if (!succeeded) {
+            metrics.failed();
             return;
         }
         long jscompTime = System.currentTimeMillis() - jscompStarted;
@@ -228,38 +623,338 @@ public class SingleCompiler {
     /**
      * Preprocess all given sources
      * @param allSourcesToRecompile
-     * @param tempDir
+     * @param processedDir
+     * @return the sources to transpile
      * @throws IOException
      */
-    private static File preProcessing(final List<FrontendUtils.FileInfo> allSourcesToRecompile, File tempDir) throws IOException {
+    private static List<FrontendUtils.FileInfo> preProcessing(final List<FrontendUtils.FileInfo> allSourcesToRecompile, Path processedDir) throws IOException {
         LOGGER.info("preProcessing");
         // run preprocessor on changed files
         long startTime = System.currentTimeMillis();
-        File toReturn = File.createTempFile("preprocessed", ".srcjar", tempDir);
-        try (FileSystem out = FrontendUtils.initZipOutput(toReturn.getAbsolutePath(), new Problems())) {
-            JavaPreprocessor.preprocessFiles(allSourcesToRecompile, out.getPath("/"), new Problems());
-        }
+        RoundMetrics.Phase phase = metrics.startPhase("preprocess");
+        List<FrontendUtils.FileInfo> toReturn = preprocess(allSourcesToRecompile, processedDir);
+        phase.end(allSourcesToRecompile.size());
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("preprocess: " + endTime + "millis");
         return toReturn;
     }
 
     /**
-     * Compile all given sources
+     * Run the <code>JavaPreprocessor</code> over the given sources that contain the <code>GwtIncompatible</code>
+     * token, writing them to the given plain directory (J2CL reads them from the default file system, anyway);
+     * the other sources are returned as they are
+     * @param sources
+     * @param processedDir
+     * @return the sources to transpile, in the same order
+     * @throws IOException
+     */
+    private static List<FrontendUtils.FileInfo> preprocess(final List<FrontendUtils.FileInfo> sources, Path processedDir) throws IOException {
+        List<FrontendUtils.FileInfo> toReturn = new ArrayList<>();
+        List<FrontendUtils.FileInfo> toPreprocess = new ArrayList<>();
+        for (FrontendUtils.FileInfo source : sources) {
+            // the preprocessor resolves the original path against the output directory, so it must be relative
+            Path originalPath = Paths.get(source.originalPath());
+            String relativePath = originalPath.isAbsolute() ? originalPath.getRoot().relativize(originalPath).toString() : source.originalPath();
+            if (new String(Files.readAllBytes(Paths.get(source.sourcePath())), StandardCharsets.UTF_8).contains("GwtIncompatible")) {
+                toPreprocess.add(FrontendUtils.FileInfo.create(source.sourcePath(), relativePath));
+                toReturn.add(FrontendUtils.FileInfo.create(processedDir.resolve(relativePath).toString(), relativePath));
+            } else {
+                toReturn.add(FrontendUtils.FileInfo.create(source.sourcePath(), relativePath));
+            }
+        }
+        if (!toPreprocess.isEmpty()) {
+            JavaPreprocessor.preprocessFiles(toPreprocess, processedDir, new Problems());
+        }
+        LOGGER.info("Preprocessed " + toPreprocess.size() + " of " + sources.size() + " files");
+        return toReturn;
+    }
+
+    /**
+     * Compile all given sources.
+     * <p>
+     * When only some of them fail (i.e. when modules are compiled one by one), the failed ones are removed from
+     * <b>allSourcesToRecompile</b> and returned, so that the others can be transpiled anyway
      * @param allSourcesToRecompile
-     * @throws RuntimeException
+     * @return the sources that failed to compile, eventually empty
+     * @throws RuntimeException if no source has been compiled
      */
-    private static void compiling(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws RuntimeException {
+    private static List<FrontendUtils.FileInfo> compiling(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws RuntimeException {
         LOGGER.info("Java compiling");
         long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("javac");
+        final List<FrontendUtils.FileInfo> failedSources = new ArrayList<>();
         if (!javac.compile(allSourcesToRecompile)) {
-            // Store files to recompile next attempt
-            toRecompile.addAll(allSourcesToRecompile);
-            //error occurred, should have been logged, skip the rest of this loop
-            throw new RuntimeException("Failed to compile " + allSourcesToRecompile.size() + " files");
+            failedSources.addAll(javac.getFailedSources());
+            if (failedSources.isEmpty() || failedSources.size() >= allSourcesToRecompile.size()) {
+                // Store files to recompile next attempt
+                toRecompile.addAll(allSourcesToRecompile);
+                //error occurred, should have been logged, skip the rest of this loop
+                throw new RuntimeException("Failed to compile " + allSourcesToRecompile.size() + " files");
+            }
+            toRecompile.addAll(failedSources);
+            allSourcesToRecompile.removeAll(failedSources);
+            LOGGER.severe("Failed to compile " + failedSources.size() + " files, going on with the " + allSourcesToRecompile.size() + " compiled ones");
+        }
+        LOGGER.info("javac classpath listing: " + javac.getLastListingMillis() + "millis of " + javac.getLastCompileMillis() + "millis (cached/total listings " + javac.getListingStats() + ")");
+        compileAbiDependents(allSourcesToRecompile);
+        if (projectsToFingerprint != null) {
+            compileDownstreamProjects(projectsToFingerprint, allSourcesToRecompile);
         }
+        firstRound = false;
+        phase.end(allSourcesToRecompile.size());
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("javac: " + endTime + "millis");
+        return failedSources;
+    }
+
+    /**
+     * Compile the sources depending on the ones just compiled whose ABI has changed, adding them to the given ones,
+     * and update the <code>DependencyIndex</code>
+     * @param allSourcesToRecompile
+     * @throws RuntimeException
+     */
+    private static void compileAbiDependents(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws RuntimeException {
+        final Map<String, DependencyIndex.Unit> compiledUnits = getIndexableUnits(javac.getCompiledUnits());
+        final Set<String> abiChanged = compiledUnits.entrySet().stream()
+                .filter(entry -> {
+                    DependencyIndex.Unit previous = dependencyIndex.get(entry.getKey());
+                    return previous != null && !previous.getAbiHash().equals(entry.getValue().getAbiHash());
+                })
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (projectsToFingerprint == null) {
+            // module fingerprints are not computed here, so forget the ones of the modules whose ABI may have changed
+            invalidateModuleFingerprints(compiledUnits.keySet().stream()
+                                                 .filter(sourcePath -> abiChanged.contains(sourcePath) || dependencyIndex.get(sourcePath) == null)
+                                                 .collect(Collectors.toSet()));
+        }
+        // dependents are looked for before the update, so that removed references are still followed
+        final Set<String> dependents = dependencyIndex.getTransitiveDependents(abiChanged);
+        dependencyIndex.update(compiledUnits);
+        allSourcesToRecompile.forEach(fileInfo -> dependents.remove(DependencyIndex.normalize(fileInfo.sourcePath())));
+        if (!dependents.isEmpty()) {
+            LOGGER.info("ABI changed in " + abiChanged.size() + " files, compiling " + dependents.size() + " dependent files");
+            List<FrontendUtils.FileInfo> dependentFiles = dependents.stream()
+                    .map(path -> FrontendUtils.FileInfo.create(path, path))
+                    .collect(Collectors.toList());
+            if (!javac.compile(dependentFiles)) {
+                toRecompile.addAll(allSourcesToRecompile);
+                toRecompile.addAll(dependentFiles);
+                throw new RuntimeException("Failed to compile " + dependentFiles.size() + " dependent files");
+            }
+            dependencyIndex.update(getIndexableUnits(javac.getCompiledUnits()));
+            allSourcesToRecompile.addAll(dependentFiles);
+        }
+        writeDependencyIndex();
+    }
+
+    /**
+     * Compile the downstream projects of the given <b>compiledProjects</b>, but only of the ones whose public API
+     * fingerprint has changed, adding their sources to the given ones; the fingerprints of all the compiled
+     * projects are updated
+     * @param compiledProjects
+     * @param allSourcesToRecompile
+     * @throws RuntimeException
+     */
+    private static void compileDownstreamProjects(final Set<MavenProject> compiledProjects, final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws RuntimeException {
+        long startTime = System.currentTimeMillis();
+        Set<MavenProject> downstreamProjects = new HashSet<>();
+        for (MavenProject compiledProject : compiledProjects) {
+            if (updateModuleFingerprint(compiledProject)) {
+                recursivelyPopulateDownStreamProjects(compiledProject, downstreamProjects);
+            }
+        }
+        downstreamProjects.removeAll(compiledProjects);
+        LOGGER.info("fingerprint: " + (System.currentTimeMillis() - startTime) + "millis");
+        if (!downstreamProjects.isEmpty()) {
+            Set<FrontendUtils.FileInfo> downstreamSources = new LinkedHashSet<>();
+            downstreamProjects.forEach(mavenProject -> populateAllSourcesInMavenProject(mavenProject, downstreamSources));
+            downstreamSources.removeAll(allSourcesToRecompile);
+            LOGGER.info("Public API changed, compiling " + downstreamProjects.size() + " downstream projects");
+            List<FrontendUtils.FileInfo> downstreamFiles = new ArrayList<>(downstreamSources);
+            if (!javac.compile(downstreamFiles)) {
+                toRecompile.addAll(allSourcesToRecompile);
+                toRecompile.addAll(downstreamFiles);
+                // the upstream projects are compiled, so their fingerprints would not reveal the change anymore
+                compiledProjects.forEach(mavenProject -> moduleFingerprints.remove(mavenProject.getId()));
+                writeModuleFingerprints();
+                throw new RuntimeException("Failed to compile " + downstreamFiles.size() + " downstream files");
+            }
+            dependencyIndex.update(getIndexableUnits(javac.getCompiledUnits()));
+            writeDependencyIndex();
+            allSourcesToRecompile.addAll(downstreamFiles);
+            downstreamProjects.forEach(SingleCompiler::updateModuleFingerprint);
+        } else {
+            LOGGER.info("Public API unchanged, downstream projects not compiled");
+        }
+        writeModuleFingerprints();
+    }
+
+    /**
+     * Compute the fingerprint of the public API of the given <code>MavenProject</code>, from its class files
+     * @param mavenProject
+     * @return <code>true</code> if the fingerprint has changed or it was not known
+     */
+    private static boolean updateModuleFingerprint(MavenProject mavenProject) {
+        try {
+            String fingerprint = classFileAbi.fingerprint(getProjectClassFiles(mavenProject));
+            return !fingerprint.equals(moduleFingerprints.put(mavenProject.getId(), fingerprint));
+        } catch (IOException e) {
+            LOGGER.warning("Failed to fingerprint " + mavenProject.getId() + ": " + e.getMessage());
+            moduleFingerprints.remove(mavenProject.getId());
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves the class files, inside <code>classesDir</code>, of all the types declared by the sources of the
+     * given <code>MavenProject</code>, nested and secondary top-level ones included, matching the source file
+     * recorded in each class file
+     * @param mavenProject
+     * @return
+     * @throws IOException
+     */
+    private static List<Path> getProjectClassFiles(MavenProject mavenProject) throws IOException {
+        final Map<Path, Set<String>> sourceNamesByPackageDir = new HashMap<>();
+        for (String sourceRoot : mavenProject.getCompileSourceRoots()) {
+            Path sourceRootPath = Paths.get(sourceRoot);
+            if (!Files.isDirectory(sourceRootPath)) {
+                continue;
+            }
+            final Path classesDir = javac.getClassesDir(sourceRoot).toPath();
+            try (Stream<Path> sources = Files.find(sourceRootPath, Integer.MAX_VALUE, (filePath, fileAttr) -> !fileAttr.isDirectory() && javaMatcher.matches(filePath))) {
+                sources.forEach(source -> {
+                    Path relativePath = sourceRootPath.relativize(source);
+                    Path packageDir = relativePath.getParent() != null ? classesDir.resolve(relativePath.getParent().toString()) : classesDir;
+                    sourceNamesByPackageDir.computeIfAbsent(packageDir, dir -> new HashSet<>()).add(source.getFileName().toString());
+                });
+            }
+        }
+        List<Path> toReturn = new ArrayList<>();
+        for (Map.Entry<Path, Set<String>> entry : sourceNamesByPackageDir.entrySet()) {
+            if (!Files.isDirectory(entry.getKey())) {
+                continue;
+            }
+            try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(entry.getKey(), "*.class")) {
+                for (Path classFile : classFiles) {
+                    if (entry.getValue().contains(classFileAbi.getSourceName(classFile))) {
+                        toReturn.add(classFile);
+                    }
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Forget the fingerprints of the <code>MavenProject</code>s the given source paths belong to, so that their
+     * downstream projects are compiled the next time they are
+     * @param sourcePaths
+     */
+    private static void invalidateModuleFingerprints(Set<String> sourcePaths) {
+        boolean removed = false;
+        for (Map.Entry<String, MavenProject> entry : baseDirProjectMap.entrySet()) {
+            String baseDir = DependencyIndex.normalize(entry.getKey());
+            if (sourcePaths.stream().anyMatch(sourcePath -> sourcePath.startsWith(baseDir))) {
+                removed |= moduleFingerprints.remove(entry.getValue().getId()) != null;
+            }
+        }
+        if (removed) {
+            writeModuleFingerprints();
+        }
+    }
+
+    private static Map<String, String> readModuleFingerprints(Path path) {
+        Map<String, String> toReturn = new HashMap<>();
+        if (!Files.isRegularFile(path)) {
+            return toReturn;
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            properties.stringPropertyNames().forEach(moduleId -> toReturn.put(moduleId, properties.getProperty(moduleId)));
+        } catch (IOException e) {
+            LOGGER.warning("Ignoring module fingerprints " + path + ": " + e.getMessage());
+        }
+        return toReturn;
+    }
+
+    private static void writeModuleFingerprints() {
+        Properties properties = new Properties();
+        properties.putAll(moduleFingerprints);
+        try (OutputStream outputStream = Files.newOutputStream(moduleFingerprintsPath)) {
+            properties.store(outputStream, "Public API fingerprints of the reactor projects");
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write " + moduleFingerprintsPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the plain js files copied by the previous sessions, so that the copies whose source has been removed
+     * meanwhile are removed too
+     * @param path
+     * @return
+     */
+    private static Map<Path, Path> readCopiedJs(Path path) {
+        Map<Path, Path> toReturn = new HashMap<>();
+        if (!Files.isRegularFile(path)) {
+            return toReturn;
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            properties.stringPropertyNames().forEach(target -> toReturn.put(Paths.get(target), Paths.get(properties.getProperty(target))));
+        } catch (IOException e) {
+            LOGGER.warning("Ignoring copied js files " + path + ": " + e.getMessage());
+        }
+        return toReturn;
+    }
+
+    private static void writeCopiedJs() {
+        Properties properties = new Properties();
+        copiedJs.forEach((target, source) -> properties.setProperty(target.toString(), source.toString()));
+        try (OutputStream outputStream = Files.newOutputStream(copiedJsPath)) {
+            properties.store(outputStream, "Plain js files copied to the intermediate js directory, and their sources");
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write " + copiedJsPath + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeDependencyIndex() {
+        try {
+            dependencyIndex.write(dependencyIndexPath);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write " + dependencyIndexPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Filter out the units generated by annotation processors, since they are written to a different directory at
+     * each run, and they are generated again anyway together with the sources that trigger them; they are kept in
+     * <code>generatedUnits</code> instead, for this session only, to find the ones referencing changed ABIs
+     * @param compiledUnits
+     * @return
+     */
+    private static Map<String, DependencyIndex.Unit> getIndexableUnits(Map<String, DependencyIndex.Unit> compiledUnits) {
+        final String generatedClassesDir = DependencyIndex.normalize(generatedClassesPath.getAbsolutePath());
+        final Map<String, DependencyIndex.Unit> toReturn = new HashMap<>();
+        compiledUnits.forEach((sourcePath, unit) -> {
+            if (sourcePath.startsWith(generatedClassesDir)) {
+                generatedUnits.put(sourcePath, unit);
+            } else {
+                toReturn.put(sourcePath, unit);
+            }
+        });
+        return toReturn;
+    }
+
+    private static DependencyIndex readDependencyIndex(Path path) {
+        try {
+            return DependencyIndex.read(path);
+        } catch (IOException e) {
+            LOGGER.warning("Ignoring dependency index " + path + ": " + e.getMessage());
+            return new DependencyIndex();
+        }
     }
 
     /**
@@ -271,37 +966,40 @@ public class SingleCompiler {
     private static List<FrontendUtils.FileInfo> getNativeSources(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws IOException {
         LOGGER.info("getNativeSources");
         long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("getNativeSources");
         // collect native js files that we'll pass in a list to the transpiler.
-        List<FrontendUtils.FileInfo> toReturn = new ArrayList<>();
-        for (String dir : options.getSourceDir()) {
-            Files.find(Paths.get(dir), Integer.MAX_VALUE, (path, attrs) -> shouldZip(path, allSourcesToRecompile)).forEach(file -> {
-                toReturn.add(FrontendUtils.FileInfo.create(file.toString(), Paths.get(dir).toAbsolutePath().relativize(file.toAbsolutePath()).toString()));
-            });
-        }
+        List<FrontendUtils.FileInfo> toReturn = nativeSourceIndex.getNativeSources(allSourcesToRecompile);
+        phase.end(toReturn.size());
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("getNativeSources: " + endTime + "millis");
         return toReturn;
     }
 
     /**
-     * Copy js files
+     * Copy js files, removing the copies (made by this session or, from the persisted list, by the previous ones)
+     * whose source is gone
      * @param allSourcesToRecompile
      * @throws IOException
      */
-    private static void copyJs(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws IOException {
+    static void copyJs(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws IOException {
         LOGGER.info("copyJs");
         long startTime = System.currentTimeMillis();
-        // blindly copy any JS in sources that aren't a native.js
-        // TODO be less "blind" about this, only copy changed files?
+        RoundMetrics.Phase phase = metrics.startPhase("copyJs");
+        // copy any JS in sources that aren't a native.js, skipping the unchanged ones
+        final Map<Path, Path> copied = new HashMap<>();
+        final int[] updated = {0};
         Iterable<String> dirs = () -> Stream.concat(Stream.of(generatedClassesPath.getAbsolutePath()), options.getSourceDir().stream()).iterator();
         for (String dir : dirs) {
+            // only generated files are hard linked: writing through a link to a user source would change it
+            final boolean link = dir.equals(generatedClassesPath.getAbsolutePath());
             Files.find(Paths.get(dir), Integer.MAX_VALUE, (path, attrs) -> jsMatcher.matches(path) && !nativeJsMatcher.matches(path))
                     .forEach(path -> {
                         try {
                             final Path target = Paths.get(options.getIntermediateJsPath(), Paths.get(dir).toAbsolutePath().relativize(path.toAbsolutePath()).toString());
-                            Files.createDirectories(target.getParent());
-                            // using StandardCopyOption.REPLACE_EXISTING seems overly pessimistic, but i can't get it to work without it
-                            Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+                            copied.put(target, path);
+                            if (updateJs(path, target, link)) {
+                                updated[0]++;
+                            }
                         } catch (IOException e) {
                             // Store files to recompile next attempt
                             toRecompile.addAll(allSourcesToRecompile);
@@ -309,27 +1007,110 @@ public class SingleCompiler {
                         }
                     });
         }
+        // remove the copies whose source has been removed
+        int removed = 0;
+        for (Path target : copiedJs.keySet()) {
+            if (!copied.containsKey(target) && Files.deleteIfExists(target)) {
+                removed++;
+            }
+        }
+        boolean changed = !copied.equals(copiedJs);
+        copiedJs = copied;
+        if (changed) {
+            writeCopiedJs();
+        }
+        LOGGER.info("Updated " + updated[0] + " and removed " + removed + " of " + copied.size() + " plain js files");
+        phase.end(updated[0] + removed);
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("copyJs: " + endTime + "millis");
     }
 
     /**
-     * Add generated sources to given ones
+     * Update the given <b>target</b> with the given <b>source</b>, unless it is the same file (i.e. a hard link to
+     * it, when allowed) or it already has the same content; the target is a hard link to the source when
+     * <b>link</b> is <code>true</code> and the file system allows it, or a copy with the same attributes otherwise
+     * @param source
+     * @param target
+     * @param link
+     * @return <code>true</code> if the target has been updated
+     * @throws IOException
+     */
+    private static boolean updateJs(Path source, Path target, boolean link) throws IOException {
+        if (Files.exists(target)) {
+            if (Files.isSameFile(source, target)) {
+                if (link) {
+                    return false;
+                }
+                // a hard link left by an earlier version, replaced by a copy
+                Files.delete(target);
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+                return true;
+            }
+            BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+            BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class);
+            if (sourceAttributes.size() == targetAttributes.size()
+                    && (sourceAttributes.lastModifiedTime().equals(targetAttributes.lastModifiedTime()) || hash(source.toFile()).equals(hash(target.toFile())))) {
+                return false;
+            }
+        }
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+        if (link && hardLinkJs) {
+            try {
+                Files.createLink(target, source);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                // e.g. different file stores
+                LOGGER.info("Hard links not available (" + e.getMessage() + "), copying plain js files");
+                hardLinkJs = false;
+            }
+        }
+        Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        return true;
+    }
+
+    /**
+     * Add to the given sources the ones generated by the annotation processors, if their content or the ABI of the
+     * types they reference changed since they were last transpiled (processors often write the same content again)
      * @param allSourcesToRecompile
      * @throws IOException
      */
-    private static void addGeneratedSources(final List<FrontendUtils.FileInfo> allSourcesToRecompile) throws IOException {
+    private static void addGeneratedSources(final List<FrontendUtils.FileInfo> allSourcesToRecompile, final List<FrontendUtils.FileInfo> processedSources) throws IOException {
         LOGGER.info("addGeneratedSources");
         long startTime = System.currentTimeMillis();
-        // add all modified Java files
-        //TODO don't just use all generated classes, but look for changes maybe?
-        Files.find(Paths.get(generatedClassesPath.getAbsolutePath()),
-                   Integer.MAX_VALUE,
-                   (filePath, fileAttr) ->
-                           !fileAttr.isDirectory()
-                                   && javaMatcher.matches(filePath)
-                /*TODO check modified?*/
-        ).forEach(file -> allSourcesToRecompile.add(FrontendUtils.FileInfo.create(file.toString(), file.toString())));
+        RoundMetrics.Phase phase = metrics.startPhase("addGeneratedSources");
+        final Set<FrontendUtils.FileInfo> alreadyAdded = new HashSet<>(allSourcesToRecompile); // e.g. the ones generated for restored units
+        final Set<String> generatedSources = javac.getGeneratedSources();
+        // the ones generated in previous rounds too, since the ABI they have been transpiled against may have changed
+        final Set<String> candidates = new LinkedHashSet<>(generatedSources);
+        candidates.addAll(generatedDigests.keySet());
+        final Map<String, DependencyIndex.Unit> generatedDeclaringUnits = new HashMap<>();
+        generatedUnits.values().forEach(unit -> unit.getDeclaredTypes().forEach(type -> generatedDeclaringUnits.put(type, unit)));
+        pendingGeneratedDigests.clear();
+        int added = 0;
+        for (String generatedSource : candidates) {
+            Path path = Paths.get(generatedSource);
+            if (!Files.isRegularFile(path)) {
+                generatedDigests.remove(generatedSource);
+                generatedUnits.remove(DependencyIndex.normalize(generatedSource));
+                continue;
+            }
+            String previous = generatedDigests.get(generatedSource);
+            // only the ones written in this round may have a new content
+            String contentDigest = generatedSources.contains(generatedSource) || previous == null ? hash(path.toFile()) : previous.substring(0, previous.indexOf(':'));
+            DependencyIndex.Unit unit = generatedUnits.get(DependencyIndex.normalize(generatedSource));
+            String digest = contentDigest + ":" + (unit != null ? dependencyIndex.getDependenciesAbiHash(unit, generatedDeclaringUnits) : "");
+            pendingGeneratedDigests.put(generatedSource, digest);
+            FrontendUtils.FileInfo fileInfo = FrontendUtils.FileInfo.create(generatedSource, generatedSource);
+            if (!alreadyAdded.contains(fileInfo) && !digest.equals(previous)) {
+                allSourcesToRecompile.add(fileInfo);
+                // generated sources are not preprocessed
+                processedSources.add(fileInfo);
+                added++;
+            }
+        }
+        LOGGER.info("Added " + added + " of " + generatedSources.size() + " generated sources written by javac");
+        phase.end(added);
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("addGeneratedSources: " + endTime + "millis");
     }
@@ -337,36 +1118,153 @@ public class SingleCompiler {
     /**
      * Retrieves the <code>J2clTranspilerOptions.Builder</code>
      * @param nativeSources
-     * @param processedZip
+     * @param processedSources
      * @return
      */
-    private static J2clTranspilerOptions.Builder getBuilder(final List<FrontendUtils.FileInfo> nativeSources, File processedZip) {
+    private static J2clTranspilerOptions.Builder getBuilder(final List<FrontendUtils.FileInfo> nativeSources, final List<FrontendUtils.FileInfo> processedSources) {
         LOGGER.info("getBuilder");
         long startTime = System.currentTimeMillis();
         J2clTranspilerOptions.Builder toReturn = baseJ2clArgs.build().toBuilder();
         if (!nativeSources.isEmpty()) {
             toReturn.setNativeSources(nativeSources);
         }
-        List<FrontendUtils.FileInfo> processedJavaFiles = FrontendUtils.getAllSources(Collections.singletonList(processedZip.getAbsolutePath()), new Problems())
-                .filter(f -> f.sourcePath().endsWith(".java"))
+        toReturn.setSources(processedSources);
+        List<String> outputDirs = javac.getOutputDirs().stream()
+                .map(File::getAbsolutePath)
+                .filter(outputDir -> !options.getBytecodeClasspath().contains(outputDir))
                 .collect(Collectors.toList());
-        toReturn.setSources(processedJavaFiles);
+        if (!outputDirs.isEmpty()) {
+            // classes compiled module by module, in place of classesDir, where stale classes may be left by a build
+            // compiling all the modules at once
+            final String classesDir = options.getClassesDir().getAbsolutePath();
+            List<String> classpath = new ArrayList<>(outputDirs);
+            options.getBytecodeClasspath().stream()
+                    .filter(entry -> !entry.equals(classesDir))
+                    .forEach(classpath::add);
+            toReturn.setClasspaths(classpath);
+        }
         long endTime = System.currentTimeMillis() - startTime;
         LOGGER.info("getBuilder: " + endTime + "millis");
         return toReturn;
     }
 
+    /**
+     * Do transpilation in shards, running concurrently, each one with its own output directory, merged into
+     * <code>intermediateJsPath</code> once all of them succeeded.
+     * <p>
+     * Since the class files of all the given sources are already in the classpath, any partition is safe: sources
+     * are grouped by package directory (to keep them together with their native sources) and the groups are spread
+     * over <code>transpileThreads</code> shards of about the same size.
+     * @param builder
+     * @param allSourcesToRecompile
+     * @param processedSources the sources to transpile, in the same order as <b>allSourcesToRecompile</b>
+     * @param nativeSources
+     * @param workDir the directory where shard outputs are written
+     * @throws IOException
+     */
+    private static void transpileShards(J2clTranspilerOptions.Builder builder, final List<FrontendUtils.FileInfo> allSourcesToRecompile, final List<FrontendUtils.FileInfo> processedSources, final List<FrontendUtils.FileInfo> nativeSources, final Path workDir) throws IOException {
+        LOGGER.info("transpileShards");
+        long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("transpile");
+        final Map<Path, List<FrontendUtils.FileInfo>> sourcesByPackage = new LinkedHashMap<>();
+        for (int i = 0; i < processedSources.size(); i++) {
+            Path packageDir = Paths.get(allSourcesToRecompile.get(i).sourcePath()).toAbsolutePath().normalize().getParent();
+            sourcesByPackage.computeIfAbsent(packageDir, dir -> new ArrayList<>()).add(processedSources.get(i));
+        }
+        final List<Path> packageDirs = new ArrayList<>(sourcesByPackage.keySet());
+        packageDirs.sort(Comparator.comparingInt((Path packageDir) -> sourcesByPackage.get(packageDir).size()).reversed());
+        final int shardCount = Math.min(options.getTranspileThreads(), packageDirs.size());
+        final List<List<FrontendUtils.FileInfo>> shardSources = new ArrayList<>();
+        final List<List<FrontendUtils.FileInfo>> shardNativeSources = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shardSources.add(new ArrayList<>());
+            shardNativeSources.add(new ArrayList<>());
+        }
+        final Map<Path, Integer> packageShards = new HashMap<>();
+        for (Path packageDir : packageDirs) {
+            // the biggest groups first, each one to the smallest shard
+            int shard = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardSources.get(i).size() < shardSources.get(shard).size()) {
+                    shard = i;
+                }
+            }
+            shardSources.get(shard).addAll(sourcesByPackage.get(packageDir));
+            packageShards.put(packageDir, shard);
+        }
+        for (FrontendUtils.FileInfo nativeSource : nativeSources) {
+            Path packageDir = Paths.get(nativeSource.sourcePath()).toAbsolutePath().normalize().getParent();
+            shardNativeSources.get(packageShards.getOrDefault(packageDir, 0)).add(nativeSource);
+        }
+        final List<Path> shardOutputs = new ArrayList<>();
+        final List<Integer> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shardOutputs.add(Files.createDirectories(workDir.resolve("shard-" + i)));
+            shards.add(i);
+        }
+        final Map<Integer, Problems> shardProblems = new ConcurrentHashMap<>();
+        // shards do not depend on each other
+        new DependencyGraphExecutor<Integer>(shardCount).execute(shards, Collections.emptyMap(), shard -> {
+            J2clTranspilerOptions.Builder shardBuilder = builder.build().toBuilder()
+                    .setSources(shardSources.get(shard))
+                    .setNativeSources(shardNativeSources.get(shard))
+                    .setOutput(shardOutputs.get(shard));
+            shardProblems.put(shard, transpile(shardBuilder.build()));
+        });
+        final List<String> errors = new ArrayList<>();
+        for (Problems problems : shardProblems.values()) {
+            if (problems.reportAndGetExitCode(System.err) != 0) {
+                errors.addAll(problems.getErrors());
+            }
+        }
+        if (!errors.isEmpty()) {
+            String errorMessage = "Error while transpiling: " + String.join(", ", errors);
+            LOGGER.severe(errorMessage);
+            // Store files to recompile next attempt
+            toRecompile.addAll(allSourcesToRecompile);
+            throw new RuntimeException(errorMessage);
+        }
+        final Path jsOutput = Paths.get(intermediateJsPath);
+        for (Path shardOutput : shardOutputs) {
+            moveTree(shardOutput, jsOutput);
+        }
+        phase.end(processedSources.size());
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("transpileShards: " + shardCount + " shards, " + endTime + "millis");
+    }
+
+    /**
+     * Move all the files inside <b>sourceDir</b> to the same relative paths inside <b>targetDir</b>, replacing the
+     * existing ones
+     * @param sourceDir
+     * @param targetDir
+     * @return the moved files, inside <b>targetDir</b>
+     * @throws IOException
+     */
+    private static List<Path> moveTree(Path sourceDir, Path targetDir) throws IOException {
+        List<Path> toReturn = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(sourceDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Path target = targetDir.resolve(sourceDir.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                toReturn.add(target);
+            }
+        }
+        return toReturn;
+    }
+
     /**
      * Do transpilation
      * @param builder
-     * @param processedZip
      * @param allSourcesToRecompile
      */
-    private static void transpile(J2clTranspilerOptions.Builder builder, File processedZip, final List<FrontendUtils.FileInfo> allSourcesToRecompile) {
+    private static void transpile(J2clTranspilerOptions.Builder builder, final List<FrontendUtils.FileInfo> allSourcesToRecompile) {
         LOGGER.info("transpile");
         long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("transpile");
         Problems transpileResult = transpile(builder.build());
-        processedZip.delete();
+        phase.end(allSourcesToRecompile.size());
         if (transpileResult.reportAndGetExitCode(System.err) != 0) {
             String errors = String.join(", ", transpileResult.getErrors());
             String errorMessage = "Error while transpiling: " + errors;
@@ -380,22 +1278,229 @@ public class SingleCompiler {
     }
 
     /**
-     * This method retrieves <b>all</b> the java sources to recompile, discovering ones in the same modules and the others in the dependent modules
+     * This method retrieves <b>all</b> the java sources to recompile.
+     * <p>
+     * Once the <code>DependencyIndex</code> is available, these are only the modified ones (the ones depending on
+     * them are compiled afterward, only if their ABI changes); otherwise, these are all the ones in the modified
+     * modules (the dependent modules are compiled afterward, only if their public API fingerprint changes)
      * @param modifiedJavaFiles
      * @return
      */
-    private static List<FrontendUtils.FileInfo> getAllSourcesToRecompile(List<FrontendUtils.FileInfo> modifiedJavaFiles) {
+    static List<FrontendUtils.FileInfo> getAllSourcesToRecompile(List<FrontendUtils.FileInfo> modifiedJavaFiles) {
+        if (!firstRound && !dependencyIndex.isEmpty()) {
+            projectsToFingerprint = null;
+            Set<FrontendUtils.FileInfo> toReturn = new LinkedHashSet<>(modifiedJavaFiles);
+            toReturn.addAll(toRecompile);
+            toRecompile.clear();
+            return new ArrayList<>(toReturn);
+        }
         // Using Set to avoid duplicate
-        final Set<MavenProject> directlyModifiedMavenProjects = retrieveDirectlyModifiedMavenProjects(modifiedJavaFiles);
-        Set<MavenProject> mavenProjectsToRecompile = new HashSet<>(directlyModifiedMavenProjects);
-        directlyModifiedMavenProjects.forEach(modifiedProject -> recursivelyPopulateDownStreamProjects(modifiedProject, mavenProjectsToRecompile));
+        List<FrontendUtils.FileInfo> toRetrieve = new ArrayList<>(modifiedJavaFiles);
+        toRetrieve.addAll(toRecompile);
+        projectsToFingerprint = retrieveDirectlyModifiedMavenProjects(toRetrieve);
         Set<FrontendUtils.FileInfo> toReturn = new HashSet<>(); // Using Set
-        mavenProjectsToRecompile.forEach(mavenProject -> populateAllSourcesInMavenProject(mavenProject, toReturn));
+        projectsToFingerprint.forEach(mavenProject -> populateAllSourcesInMavenProject(mavenProject, toReturn));
         toReturn.addAll(toRecompile);
         toRecompile.clear();
+        if (firstRound && transpileCache != null && !dependencyIndex.isEmpty()) {
+            return restoreCachedUnits(new ArrayList<>(toReturn));
+        }
         return new ArrayList<>(toReturn); // returning List because it is the expected class by other methods
     }
 
+    /**
+     * Restore the outputs of the given sources from the <code>TranspileCache</code>, when they have been compiled
+     * with the same content, classpath and ABI of their dependencies.
+     * <p>
+     * The annotation processors are run over the restored sources, since the ones they generate are compiled and
+     * transpiled every time.
+     * @param sources
+     * @return the sources that have not been restored, and that have to be compiled
+     */
+    private static List<FrontendUtils.FileInfo> restoreCachedUnits(List<FrontendUtils.FileInfo> sources) {
+        LOGGER.info("restoreCachedUnits");
+        long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("restoreCachedUnits");
+        List<FrontendUtils.FileInfo> toReturn = new ArrayList<>();
+        List<FrontendUtils.FileInfo> restored = new ArrayList<>();
+        for (FrontendUtils.FileInfo source : sources) {
+            DependencyIndex.Unit unit = dependencyIndex.get(source.sourcePath());
+            String key = getCacheKey(source.sourcePath());
+            try {
+                if (unit != null && key != null && transpileCache.restore(key, unit.getAbiHash(), dependencyIndex.getDependenciesAbiHash(source.sourcePath()), Paths.get(intermediateJsPath), javac.getClassesDir(source.sourcePath()).toPath())) {
+                    restored.add(source);
+                    continue;
+                }
+            } catch (IOException e) {
+                LOGGER.warning("Failed to restore " + source.sourcePath() + " from the transpile cache: " + e.getMessage());
+            }
+            toReturn.add(source);
+        }
+        if (!restored.isEmpty() && javac.hasAnnotationProcessors()) {
+            if (!javac.processAnnotations(restored)) {
+                LOGGER.warning("Failed to process annotations of the restored sources, compiling all of them");
+                return sources;
+            }
+            javac.getGeneratedSources().forEach(file -> toReturn.add(FrontendUtils.FileInfo.create(file, file)));
+        }
+        LOGGER.info("Restored " + restored.size() + " of " + sources.size() + " files from the transpile cache");
+        phase.end(sources.size());
+        metrics.count("transpileCacheHits", restored.size());
+        metrics.count("transpileCacheMisses", sources.size() - restored.size());
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("restoreCachedUnits: " + endTime + "millis");
+        return toReturn;
+    }
+
+    /**
+     * Store the outputs of the given compiled and transpiled sources in the <code>TranspileCache</code>, and evict
+     * the least recently used entries
+     * @param compiledSources
+     */
+    private static void storeCachedUnits(final List<FrontendUtils.FileInfo> compiledSources) {
+        LOGGER.info("storeCachedUnits");
+        long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("storeCachedUnits");
+        final String generatedClassesDir = DependencyIndex.normalize(generatedClassesPath.getAbsolutePath());
+        final Path jsOutput = Paths.get(intermediateJsPath);
+        final Map<Path, List<Path>> listings = new HashMap<>();
+        int stored = 0;
+        for (FrontendUtils.FileInfo source : compiledSources) {
+            String sourcePath = DependencyIndex.normalize(source.sourcePath());
+            DependencyIndex.Unit unit = dependencyIndex.get(sourcePath);
+            Path sourceRoot = getSourceRoot(sourcePath);
+            if (unit == null || sourceRoot == null || sourcePath.startsWith(generatedClassesDir)) {
+                continue;
+            }
+            String key = getCacheKey(sourcePath);
+            if (key == null) {
+                continue;
+            }
+            Path classesDir = javac.getClassesDir(sourcePath).toPath();
+            Path packagePath = sourceRoot.relativize(Paths.get(sourcePath)).getParent();
+            Set<String> topLevelNames = getTopLevelNames(unit, packagePath);
+            try {
+                transpileCache.put(key, unit.getAbiHash(), dependencyIndex.getDependenciesAbiHash(sourcePath),
+                                   jsOutput, getUnitOutputs(jsOutput, packagePath, topLevelNames, listings),
+                                   classesDir, getUnitOutputs(classesDir, packagePath, topLevelNames, listings));
+                stored++;
+            } catch (IOException e) {
+                LOGGER.warning("Failed to store " + sourcePath + " in the transpile cache: " + e.getMessage());
+            }
+        }
+        try {
+            transpileCache.evict();
+        } catch (IOException e) {
+            LOGGER.warning("Failed to evict transpile cache entries: " + e.getMessage());
+        }
+        phase.end(stored);
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Stored " + stored + " files in the transpile cache");
+        LOGGER.info("storeCachedUnits: " + endTime + "millis");
+    }
+
+    /**
+     * Returns the simple names of the top-level types declared by the given unit
+     * @param unit
+     * @param packagePath the path of the package of the unit, relative to its source root
+     * @return
+     */
+    private static Set<String> getTopLevelNames(DependencyIndex.Unit unit, Path packagePath) {
+        String packagePrefix = packagePath != null ? packagePath.toString().replace(File.separatorChar, '.') + "." : "";
+        return unit.getDeclaredTypes().stream()
+                .filter(type -> type.startsWith(packagePrefix) && type.indexOf('.', packagePrefix.length()) < 0)
+                .map(type -> type.substring(packagePrefix.length()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Retrieves the outputs, relative to <b>outputDir</b>, of the given top-level types and of their nested ones
+     * (e.g. <code>Foo.class</code>, <code>Foo$Bar.class</code>, <code>Foo.impl.java.js</code>)
+     * @param outputDir
+     * @param packagePath
+     * @param topLevelNames
+     * @param listings the already listed directories
+     * @return
+     * @throws IOException
+     */
+    private static List<Path> getUnitOutputs(Path outputDir, Path packagePath, Set<String> topLevelNames, Map<Path, List<Path>> listings) throws IOException {
+        Path packageDir = packagePath != null ? outputDir.resolve(packagePath.toString()) : outputDir;
+        List<Path> files = listings.get(packageDir);
+        if (files == null) {
+            files = new ArrayList<>();
+            if (Files.isDirectory(packageDir)) {
+                try (DirectoryStream<Path> listing = Files.newDirectoryStream(packageDir, Files::isRegularFile)) {
+                    listing.forEach(files::add);
+                }
+            }
+            listings.put(packageDir, files);
+        }
+        List<Path> toReturn = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            int nameEnd = fileName.length();
+            for (char separator : new char[]{'$', '.'}) {
+                int index = fileName.indexOf(separator);
+                if (index > 0 && index < nameEnd) {
+                    nameEnd = index;
+                }
+            }
+            if (topLevelNames.contains(fileName.substring(0, nameEnd))) {
+                toReturn.add(outputDir.relativize(file));
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the key of the given source in the <code>TranspileCache</code>, from its content, the content of its
+     * native.js companions and the classpath
+     * @param sourcePath
+     * @return the key, or <code>null</code> if the source can not be read
+     */
+    private static String getCacheKey(String sourcePath) {
+        try {
+            StringBuilder nativeJsHashes = new StringBuilder();
+            for (FrontendUtils.FileInfo nativeJs : nativeSourceIndex.getNativeSources(Collections.singletonList(FrontendUtils.FileInfo.create(sourcePath, sourcePath)))) {
+                nativeJsHashes.append(DigestUtils.md5Hex(Files.readAllBytes(Paths.get(nativeJs.sourcePath()))));
+            }
+            String nativeJsHash = nativeJsHashes.toString();
+            return DigestUtils.md5Hex(classpathHash + "\n" + DigestUtils.md5Hex(Files.readAllBytes(Paths.get(sourcePath))) + "\n" + nativeJsHash);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a hash of the identity of the jars in the classpath, of the toolchain, and of the options affecting the
+     * output
+     * @param orderedClasspath
+     * @return
+     */
+    private static String hashClasspath(List<File> orderedClasspath) {
+        StringBuilder toDigest = new StringBuilder("1\n"); // cache layout version
+        // the units outlive the upgrades of the plugin, as the jszip cache
+        toDigest.append(JsZipCache.readToolchain()).append('\n');
+        toDigest.append(options.isDeclareLegacyNamespaces()).append('\n');
+        Stream.concat(orderedClasspath.stream(), Stream.of(options.getBootstrapClasspath()))
+                .filter(File::isFile)
+                .forEach(file -> toDigest.append(file.getAbsolutePath()).append(' ').append(file.length()).append(' ').append(file.lastModified()).append('\n'));
+        return DigestUtils.md5Hex(toDigest.toString());
+    }
+
+    /**
+     * Returns the source root the given (normalized) source path belongs to
+     * @param sourcePath
+     * @return the source root, or <code>null</code> if it does not belong to any of them
+     */
+    private static Path getSourceRoot(String sourcePath) {
+        Path path = Paths.get(sourcePath);
+        return sourceRoots.stream()
+                .filter(path::startsWith)
+                .max(Comparator.comparingInt(Path::getNameCount))
+                .orElse(null);
+    }
+
     /**
      * Retrieves the <code>MavenProject</code>s the given <b>modifiedJavaFiles</b> belongs to
      * @param modifiedJavaFiles
@@ -444,19 +1549,25 @@ public class SingleCompiler {
      * This method incrementally transpile the dependencies in the given <code>List</code> classpath, starting from the <b>fixedClassPathElements</b> element (i.e. elements from 0 to fixedClassPathElements -1
      * are always set in the classpath)
      * @param toTranspile
+     * @param dependencyGraph
      * @param baseJ2clArgs
      * @param persistentInputStore
      * @param originalClassPath
      * @return
      * @throws IOException
      */
-    private static List<String> progressivelyHandleDependencies(List<File> toTranspile, J2clTranspilerOptions.Builder baseJ2clArgs, PersistentInputStore persistentInputStore, List<String> originalClassPath, File tempDir) throws IOException {
+    private static List<String> progressivelyHandleDependencies(List<File> toTranspile, Map<File, Set<File>> dependencyGraph, J2clTranspilerOptions.Builder baseJ2clArgs, PersistentInputStore persistentInputStore, List<String> originalClassPath, File tempDir) throws IOException {
+        if (options.getDependencyThreads() > 1 && !dependencyGraph.isEmpty()) {
+            return parallelHandleDependencies(toTranspile, dependencyGraph, baseJ2clArgs, persistentInputStore, originalClassPath, tempDir);
+        }
         List<String> toReturn = new ArrayList<>();
         for (int i = originalClassPath.size(); i < toTranspile.size(); i++) {
             File toHandle = toTranspile.get(i);
             List<String> newClasspath = new ArrayList<>(originalClassPath);
             if (isToTranspile(toHandle)) {
-                populateHandleDependencies(toHandle, baseJ2clArgs, persistentInputStore, toReturn, tempDir);
+                String jszipOut = populateHandleDependencies(toHandle, baseJ2clArgs, tempDir);
+                watchedJars.put(toHandle, new WatchedJar(toHandle, jszipOut));
+                addTranspiledDependency(jszipOut, persistentInputStore, toReturn);
                 newClasspath.add(toHandle.getAbsolutePath());
                 baseJ2clArgs.setClasspaths(newClasspath);
             }
@@ -464,6 +1575,79 @@ public class SingleCompiler {
         return toReturn;
     }
 
+    /**
+     * This method transpiles the dependencies in the given <code>List</code> classpath concurrently, following the
+     * given <b>dependencyGraph</b>: each jar is started as soon as all the jars it depends on are finished, and it
+     * is transpiled with those ones added to the <b>originalClassPath</b>
+     * @param toTranspile
+     * @param dependencyGraph
+     * @param baseJ2clArgs
+     * @param persistentInputStore
+     * @param originalClassPath
+     * @param tempDir
+     * @return
+     * @throws IOException
+     */
+    private static List<String> parallelHandleDependencies(List<File> toTranspile, Map<File, Set<File>> dependencyGraph, J2clTranspilerOptions.Builder baseJ2clArgs, PersistentInputStore persistentInputStore, List<String> originalClassPath, File tempDir) throws IOException {
+        LOGGER.info("Transpiling dependencies with " + options.getDependencyThreads() + " threads");
+        LOGGER.warning("dependencyThreads > 1 runs J2CL concurrently, which it does not document as thread-safe: set it back to 1 if transpilation fails or its output differs");
+        long startTime = System.currentTimeMillis();
+        List<File> jars = new ArrayList<>();
+        for (int i = originalClassPath.size(); i < toTranspile.size(); i++) {
+            if (isToTranspile(toTranspile.get(i))) {
+                jars.add(toTranspile.get(i));
+            }
+        }
+        final J2clTranspilerOptions baseOptions = baseJ2clArgs.build();
+        final Map<File, String> transpiled = new ConcurrentHashMap<>();
+        new DependencyGraphExecutor<File>(options.getDependencyThreads()).execute(jars, dependencyGraph, toHandle -> {
+            List<String> classpath = new ArrayList<>(originalClassPath);
+            recursivelyPopulateDependencies(toHandle, dependencyGraph, new LinkedHashSet<>()).forEach(dependency -> classpath.add(dependency.getAbsolutePath()));
+            String jszipOut = populateHandleDependencies(toHandle, baseOptions.toBuilder().setClasspaths(classpath), tempDir);
+            watchedJars.put(toHandle, new WatchedJar(toHandle, jszipOut));
+            if (jszipOut != null) {
+                transpiled.put(toHandle, jszipOut);
+            }
+        });
+        // keep the classpath order, whatever the order the jars have been completed
+        List<String> toReturn = new ArrayList<>();
+        jars.forEach(jar -> addTranspiledDependency(transpiled.get(jar), persistentInputStore, toReturn));
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Transpiled " + jars.size() + " dependencies in " + endTime + "millis");
+        return toReturn;
+    }
+
+    /**
+     * Recursively retrieves all the dependencies of the given <code>File</code> in the <b>dependencyGraph</b>
+     * @param toHandle
+     * @param dependencyGraph
+     * @param toPopulate
+     * @return
+     */
+    private static Set<File> recursivelyPopulateDependencies(File toHandle, Map<File, Set<File>> dependencyGraph, Set<File> toPopulate) {
+        for (File dependency : dependencyGraph.getOrDefault(toHandle, Collections.emptySet())) {
+            if (toPopulate.add(dependency)) {
+                recursivelyPopulateDependencies(dependency, dependencyGraph, toPopulate);
+            }
+        }
+        return toPopulate;
+    }
+
+    /**
+     * Add the given <b>jszipOut</b>, if any, to the closure arguments and to the <code>PersistentInputStore</code>
+     * @param jszipOut
+     * @param persistentInputStore
+     * @param toPopulate
+     */
+    private static void addTranspiledDependency(String jszipOut, PersistentInputStore persistentInputStore, List<String> toPopulate) {
+        if (jszipOut == null) {
+            return;
+        }
+        toPopulate.add("--jszip");
+        toPopulate.add(jszipOut);
+        persistentInputStore.addInput(jszipOut, "0");
+    }
+
     /**
      * Verify if the given <code>File</code> is to be transpiled - i.e. it is changed
      * @param toCheck
@@ -477,79 +1661,159 @@ public class SingleCompiler {
         if (toCheck.isDirectory()) {
             return false;//...hacky, but probably just classes dir
         }
-        // TODO Implement actual check
+        // jars are always handled, unchanged ones are found in the jarManifest without reading them
         return true;
     }
 
-    private static void populateHandleDependencies(File toHandle, J2clTranspilerOptions.Builder baseJ2clArgs, PersistentInputStore persistentInputStore, List<String> toPopulate, File tempDir) throws IOException {
+    /**
+     * Transpiles the given dependency to the jszip cache, unless it is already there
+     * @param toHandle
+     * @param baseJ2clArgs
+     * @param tempDir
+     * @return the path of the jszip, or <code>null</code> if there is nothing to add for the given dependency
+     * @throws IOException
+     */
+    private static String populateHandleDependencies(File toHandle, J2clTranspilerOptions.Builder baseJ2clArgs, File tempDir) throws IOException {
+        // unchanged jars are neither hashed nor read again
+        String recorded = jarManifest.getResult(toHandle);
+        if (recorded != null && (recorded.isEmpty() || new File(recorded).exists())) {
+            if (recorded.isEmpty()) {
+                return null;
+            }
+            jsZipCache.hit(recorded);
+            return recorded;
+        }
         // hash the file, see if we already have one
-        String hash = hash(toHandle);
-        String jszipOut = options.getJsZipCacheDir() + "/" + hash + "-" + toHandle.getName() + ".js.zip";
+        String hash = jarManifest.getHash(toHandle);
+        String jszipOut = jsZipCache.getEntryPath(hash, toHandle.getName());
         LOGGER.info(toHandle + " will be built to " + jszipOut);
         File jszipOutFile = new File(jszipOut);
         if (jszipOutFile.exists()) {
-            toPopulate.add("--jszip");
-            toPopulate.add(jszipOut);
-            persistentInputStore.addInput(jszipOut, "0");
-            return;//already exists, we'll use it
-        }
-        // run preprocessor
-        File processed = File.createTempFile("preprocessed", ".srcjar", tempDir);
-        try (FileSystem out = FrontendUtils.initZipOutput(processed.getAbsolutePath(), new Problems())) {
-            ImmutableList<FrontendUtils.FileInfo> allSources = FrontendUtils.getAllSources(Collections.singletonList(toHandle.getAbsolutePath()), new Problems())
-                    .filter(f -> f.sourcePath().endsWith(".java"))
-                    .collect(ImmutableList.toImmutableList());
-            if (allSources.isEmpty()) {
-                LOGGER.info("no sources in file " + toHandle);
-                return;
+            jsZipCache.hit(jszipOut);
+            jarManifest.putResult(toHandle, jszipOut);
+            return jszipOut;//already exists, we'll use it
+        }
+        // do not try again, on every start, the jars that already failed with the same classpath
+        String failureKey = failedDependencies.getKey(hash, toHandle, baseJ2clArgs.build().getClasspaths());
+        if (failedDependencies.isToSkip(toHandle, failureKey)) {
+            return null;
+        }
+        // the cache may be shared with other builds: wait for the one transpiling the same jar, if any
+        String toReturn;
+        try (CacheLock lock = CacheLock.lock(jsZipCache.getLockFile(jszipOutFile.getName()))) {
+            if (jszipOutFile.exists()) {
+                jsZipCache.hit(jszipOut);
+                jarManifest.putResult(toHandle, jszipOut);
+                return jszipOut;
+            }
+            File jszipTmpFile = new File(jszipOutFile.getParentFile(), jszipOutFile.getName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                if (remoteJsZipCache != null && remoteJsZipCache.fetch(jszipOutFile.getName(), jszipTmpFile)) {
+                    Files.move(jszipTmpFile.toPath(), jszipOutFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    jsZipCache.fetched(jszipOut);
+                    jarManifest.putResult(toHandle, jszipOut);
+                    return jszipOut;
+                }
+                toReturn = transpileDependency(toHandle, jszipOut, jszipTmpFile, failureKey, baseJ2clArgs, tempDir);
+            } finally {
+                Files.deleteIfExists(jszipTmpFile.toPath());
             }
-            JavaPreprocessor.preprocessFiles(allSources, out.getPath("/"), new Problems());
         }
+        // the entry is complete once moved in place, other builds do not have to wait for the upload
+        if (toReturn != null && remoteJsZipCache != null) {
+            remoteJsZipCache.store(jszipOutFile.getName(), jszipOutFile);
+        }
+        return toReturn;
+    }
 
-        //TODO javac these first, so we have consistent bytecode, and use that to rebuild the classpath
-        J2clTranspilerOptions.Builder pretranspile = baseJ2clArgs.build().toBuilder();
-        // in theory, we only preCompile with the dependencies for this particular dep
-        pretranspile.setOutput(FrontendUtils.initZipOutput(jszipOut, new Problems()).getPath("/"));
-        pretranspile.setNativeSources(FrontendUtils.getAllSources(Collections.singletonList(toHandle.getAbsolutePath()), new Problems())
-                                              .filter(p -> p.sourcePath().endsWith(".native.js"))
-                                              .collect(ImmutableList.toImmutableList()));
-        List<FrontendUtils.FileInfo> processedJavaFiles = FrontendUtils.getAllSources(Collections.singletonList(processed.getAbsolutePath()), new Problems())
-                .filter(f -> f.sourcePath().endsWith(".java"))
+    /**
+     * Transpiles the given dependency to a temporary file, moved to <b>jszipOut</b> once complete, so that other
+     * builds sharing the cache never see a partial one; the transpiled output and the plain js of the jar are
+     * written to it in a single pass, see {@link JsZipWriter}
+     * @param toHandle
+     * @param jszipOut
+     * @param jszipTmpFile
+     * @param failureKey the key recording the failure, if any, see {@link FailedDependencies}
+     * @param baseJ2clArgs
+     * @param tempDir
+     * @return <b>jszipOut</b>, or <code>null</code> if the dependency has no sources or it failed to transpile
+     * @throws IOException
+     */
+    private static String transpileDependency(File toHandle, String jszipOut, File jszipTmpFile, String failureKey, J2clTranspilerOptions.Builder baseJ2clArgs, File tempDir) throws IOException {
+        File jszipOutFile = new File(jszipOut);
+        // extract the sources only once
+        ImmutableList<FrontendUtils.FileInfo> jarSources = FrontendUtils.getAllSources(Collections.singletonList(toHandle.getAbsolutePath()), new Problems())
                 .collect(ImmutableList.toImmutableList());
-        if (processedJavaFiles.isEmpty()) {
-            LOGGER.info("no sources left in " + toHandle + " after preprocessing");
-            return;
+        List<FrontendUtils.FileInfo> allSources = jarSources.stream()
+                .filter(f -> f.sourcePath().endsWith(".java"))
+                .collect(Collectors.toList());
+        if (allSources.isEmpty()) {
+            LOGGER.info("no sources in file " + toHandle);
+            jarManifest.putResult(toHandle, "");
+            return null;
         }
-        pretranspile.setSources(processedJavaFiles);
-        Problems result = transpile(pretranspile.build());
-
-        // blindly copy any JS in sources that aren't a native.js
-        ZipFile zipInputFile = new ZipFile(toHandle);
-        processed.delete();
-        if (result.reportAndGetExitCode(System.err) == 0) {
-            try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + jszipOutFile.toURI()), Collections.singletonMap("create", "true"))) {
-                for (ZipEntry entry : Collections.list(zipInputFile.entries())) {
-                    Path entryPath = Paths.get(entry.getName());
-                    if (jsMatcher.matches(entryPath) && !nativeJsMatcher.matches(entryPath)) {
-                        try (InputStream inputStream = zipInputFile.getInputStream(entry)) {
-                            Path path = fs.getPath(entry.getName()).toAbsolutePath();
-                            Files.createDirectories(path.getParent());
-                            // using StandardCopyOption.REPLACE_EXISTING seems overly pessimistic, but i can't get it to work without it
-                            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+        // run preprocessor, transpiling to a plain directory, zipped once done
+        Path processedDir = Files.createTempDirectory(tempDir.toPath(), "preprocessed");
+        Path transpiledDir = Files.createTempDirectory(tempDir.toPath(), "transpiled");
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        int exitCode;
+        try {
+            Problems result;
+            try {
+                List<FrontendUtils.FileInfo> processedJavaFiles = preprocess(allSources, processedDir);
+
+                //TODO javac these first, so we have consistent bytecode, and use that to rebuild the classpath
+                J2clTranspilerOptions.Builder pretranspile = baseJ2clArgs.build().toBuilder();
+                // in theory, we only preCompile with the dependencies for this particular dep
+                pretranspile.setOutput(transpiledDir);
+                pretranspile.setNativeSources(jarSources.stream()
+                                                      .filter(p -> p.sourcePath().endsWith(".native.js"))
+                                                      .collect(ImmutableList.toImmutableList()));
+                pretranspile.setSources(processedJavaFiles);
+                result = transpile(pretranspile.build());
+            } finally {
+                deleteRecursively(processedDir);
+            }
+
+            // keep the diagnostics, to be recorded on failure
+            try (PrintStream printStream = new PrintStream(diagnostics, true, "UTF-8")) {
+                exitCode = result.reportAndGetExitCode(printStream);
+            }
+            System.err.print(diagnostics.toString("UTF-8"));
+
+            if (exitCode == 0) {
+                try (JsZipWriter jsZipWriter = new JsZipWriter(jszipTmpFile, options.isStoredJsZips());
+                     ZipFile zipInputFile = new ZipFile(toHandle)) {
+                    // blindly copy any JS in sources that aren't a native.js, taking precedence over the transpiled one
+                    Enumeration<? extends ZipEntry> entries = zipInputFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        Path entryPath = Paths.get(entry.getName());
+                        if (!entry.isDirectory() && jsMatcher.matches(entryPath) && !nativeJsMatcher.matches(entryPath)) {
+                            try (InputStream inputStream = zipInputFile.getInputStream(entry)) {
+                                jsZipWriter.addEntry(entry.getName(), inputStream, entry.getSize());
+                            }
                         }
                     }
+                    jsZipWriter.addDirectory(transpiledDir);
                 }
             }
-            toPopulate.add("--jszip");
-            toPopulate.add(jszipOut);
-            persistentInputStore.addInput(jszipOut, "0");
+        } finally {
+            deleteRecursively(transpiledDir);
+        }
+
+        if (exitCode == 0) {
+            Files.move(jszipTmpFile.toPath(), jszipOutFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            jsZipCache.built(jszipOut);
+            jarManifest.putResult(toHandle, jszipOut);
+            failedDependencies.succeeded(failureKey);
+            return jszipOut;
         } else {
-            jszipOutFile.delete();
-            // ignoring failure for now, TODO don't!
-            // This is actually slightly tricky - we can't cache failure, since the user might stop and fix the classpath
-            // and then the next build will work, but on the other hand we don't want to fail building jsinterop-base
-            // over and over again either.
+            // the failure is cached along with the classpath, so that fixing the classpath, or updating the jar,
+            // tries again; failed jars are skipped meanwhile, unless retryFailedDependencies is set
+            failedDependencies.failed(toHandle, failureKey, diagnostics.toString("UTF-8"));
             LOGGER.info("Failed compiling " + toHandle + " to " + jszipOutFile.getName() + ", optionally copy a manual version to the cache to avoid this error");
+            return null;
         }
     }
 
@@ -561,16 +1825,6 @@ public class SingleCompiler {
         }
     }
 
-    private static boolean matchesChangedJavaFile(Path path, List<FrontendUtils.FileInfo> modifiedJavaFiles) {
-        String pathString = path.toString();
-        String nativeFilePath = pathString.substring(0, pathString.lastIndexOf(NativeJavaScriptFile.NATIVE_EXTENSION));
-        LOGGER.log(Level.FINE, "nativeFilePath " + nativeFilePath);
-        return modifiedJavaFiles.stream().anyMatch(fileInfo -> {
-            LOGGER.log(Level.FINE, "fileInfo.sourcePath() " + fileInfo.sourcePath());
-            return fileInfo.sourcePath().startsWith(nativeFilePath);
-        });
-    }
-
     /**
      * Transpiles Java to Js. Should have the same effect as running the main directly, except by running
      * it here we don't System.exit at the end, so the JVM can stay hot.
@@ -579,31 +1833,24 @@ public class SingleCompiler {
         return J2clTranspiler.transpile(j2clArgs);
     }
 
-    private static boolean shouldZip(Path path, List<FrontendUtils.FileInfo> modifiedJavaFiles) {
-        return nativeJsMatcher.matches(path) && matchesChangedJavaFile(path, modifiedJavaFiles);
-    }
-
     private static boolean jscomp(List<String> baseClosureArgs, PersistentInputStore persistentInputStore, String updatedJsDirectories) throws IOException {
         // collect all js into one artifact (currently jscomp, but it would be wonderful to not pay quite so much for this...)
         List<String> jscompArgs = new ArrayList<>(baseClosureArgs);
 
-        // BuildMojo a new compiler for this run, but share the cached js ASTs
+        // BuildMojo a new compiler for this run, but share the cached js ASTs: closure does not support running the
+        // same compiler twice
         Compiler jsCompiler = new Compiler(System.err);
 
         jsCompiler.setPersistentInputStore(persistentInputStore);
 
-        // sanity check args
+        // sanity check args - the runner is created every time, to expand the --js glob again
         CommandLineRunner jscompRunner = new InProcessJsCompRunner(jscompArgs.toArray(new String[0]), jsCompiler);
         if (!jscompRunner.shouldRunCompiler()) {
             return false;
         }
 
-        // for each file in the updated dir
-        long timestamp = System.currentTimeMillis();
-        Files.find(Paths.get(updatedJsDirectories), Integer.MAX_VALUE, (path, attrs) -> jsMatcher.matches(path)).forEach((Path path) -> {
-            // add updated JS file to the input store with a hash instead as a digest for now
-            persistentInputStore.addInput(path.toString(), hash(path.toFile()));
-        });
+        // for each changed file in the updated dir
+        refreshPersistentInputStore(persistentInputStore, updatedJsDirectories);
 
         //TODO how do we handle deleted files? If they are truly deleted, nothing should reference them, and the module resolution should shake them out, at only the cost of a little memory?
 
@@ -619,6 +1866,56 @@ public class SingleCompiler {
         return true;
     }
 
+    /**
+     * Add the js files of the given directory to the <code>PersistentInputStore</code>, with a hash as digest; files
+     * are hashed again only if their size or last modified time changed since the previous round, or if they were
+     * modified while it was running (since the last modified time may not tell apart two writes in a row)
+     * @param persistentInputStore
+     * @param updatedJsDirectories
+     * @throws IOException
+     */
+    static void refreshPersistentInputStore(PersistentInputStore persistentInputStore, String updatedJsDirectories) throws IOException {
+        long startTime = System.currentTimeMillis();
+        RoundMetrics.Phase phase = metrics.startPhase("refreshPersistentInputStore");
+        final Set<String> found = new HashSet<>();
+        final int[] rehashed = {0};
+        Files.walkFileTree(Paths.get(updatedJsDirectories), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || !jsMatcher.matches(path)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String pathString = path.toString();
+                found.add(pathString);
+                long lastModified = attrs.lastModifiedTime().toMillis();
+                JsDigest previous = jsDigests.get(pathString);
+                if (previous == null || previous.size != attrs.size() || previous.lastModified != lastModified || lastModified >= previous.hashed) {
+                    String digest = hash(path.toFile());
+                    rehashed[0]++;
+                    jsDigests.put(pathString, new JsDigest(attrs.size(), lastModified, digest, startTime));
+                    if (previous == null || !previous.digest.equals(digest)) {
+                        // add updated JS file to the input store with a hash instead as a digest for now
+                        persistentInputStore.addInput(pathString, digest);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        jsDigests.keySet().retainAll(found);
+        phase.end(rehashed[0]);
+        long endTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Re-hashed " + rehashed[0] + " of " + found.size() + " js files");
+        LOGGER.info("refreshPersistentInputStore: " + endTime + "millis");
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.warning("Failed to delete " + root + ": " + e.getMessage());
+        }
+    }
+
     private static File createTempDir(File baseDir) {
         int TEMP_DIR_ATTEMPTS = 10000;
         String baseName = System.currentTimeMillis() + "-";
@@ -639,6 +1936,196 @@ public class SingleCompiler {
                         + ')');
     }
 
+    /**
+     * Size, last modified time and digest of a js file, as of the last time it was hashed
+     */
+    private static class JsDigest {
+
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+        private final long hashed; // files modified since then may have changed after being hashed
+
+        JsDigest(long size, long lastModified, String digest, long hashed) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.hashed = hashed;
+        }
+    }
+
+    /**
+     * A transpiled dependency jar, with its size and last modified time at that moment
+     */
+    private static class WatchedJar {
+
+        private final File jar;
+        private final long size;
+        private final long lastModified;
+        private final String jszipOut;
+
+        WatchedJar(File jar, String jszipOut) {
+            this.jar = jar;
+            this.size = jar.length();
+            this.lastModified = jar.lastModified();
+            this.jszipOut = jszipOut;
+        }
+
+        boolean isChanged() {
+            return jar.length() != size || jar.lastModified() != lastModified;
+        }
+    }
+
+    /**
+     * Stages of a pipelined round: the sources of each module are transpiled as soon as javac is done with them,
+     * and the js files written are added to the closure input store as soon as they land in
+     * <code>intermediateJsPath</code>, while javac goes on with the other modules.
+     * <p>
+     * The compiled sources are queued without bounds, so that the javac threads submitting them never wait for
+     * the transpile stage; the transpiled js files are queued with a bound, so that hashing them does not fall
+     * behind. After a transpile error the remaining batches are only drained.
+     * <p>
+     * Ownership: the stages only read the state set up by {@link #setup(Gwt3Options, List, Map, File, Map)}
+     * (<code>getBuilder</code>, <code>preprocess</code> and <code>getNativeSources</code>, whose index is
+     * synchronized) and write to their own directories; the js files are hashed by the register stage into
+     * <code>hashed</code>, but <code>jsDigests</code> and the <code>PersistentInputStore</code> are only updated
+     * by {@link #finish()}, on the thread running the round.
+     */
+    private static class RoundPipeline {
+
+        private static final int QUEUE_CAPACITY = 2;
+
+        private final List<FrontendUtils.FileInfo> endOfSources = new ArrayList<>();
+        private final List<Path> endOfJs = new ArrayList<>();
+        private final BlockingQueue<List<FrontendUtils.FileInfo>> toTranspile = new LinkedBlockingQueue<>();
+        private final BlockingQueue<List<Path>> toRegister = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final Set<FrontendUtils.FileInfo> transpiled = ConcurrentHashMap.newKeySet();
+        private final Map<String, JsDigest> hashed = new ConcurrentHashMap<>();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final Path workDir;
+        private final Thread transpileStage = new Thread(this::transpileLoop, "j2cl-transpile-stage");
+        private final Thread registerStage = new Thread(this::registerLoop, "j2cl-register-stage");
+
+        RoundPipeline(Path workDir) {
+            this.workDir = workDir;
+            // not to keep the JVM alive if the round is abandoned
+            transpileStage.setDaemon(true);
+            registerStage.setDaemon(true);
+            transpileStage.start();
+            registerStage.start();
+        }
+
+        /**
+         * Queue the given compiled sources to be transpiled, without waiting
+         * @param sources
+         */
+        void submit(List<FrontendUtils.FileInfo> sources) {
+            toTranspile.add(new ArrayList<>(sources));
+        }
+
+        /**
+         * Wait for all the queued sources to be transpiled and hashed, then add the hashed js files to
+         * <code>jsDigests</code> and to the <code>PersistentInputStore</code>; if interrupted meanwhile, the stages
+         * are interrupted too, and nothing is added
+         * @throws InterruptedException
+         */
+        void finish() throws InterruptedException {
+            toTranspile.add(endOfSources);
+            try {
+                transpileStage.join();
+                registerStage.join();
+            } catch (InterruptedException e) {
+                transpileStage.interrupt();
+                registerStage.interrupt();
+                throw e;
+            }
+            hashed.forEach((pathString, jsDigest) -> {
+                JsDigest previous = jsDigests.put(pathString, jsDigest);
+                if (previous == null || !previous.digest.equals(jsDigest.digest)) {
+                    persistentInputStore.addInput(pathString, jsDigest.digest);
+                }
+            });
+        }
+
+        Set<FrontendUtils.FileInfo> getTranspiled() {
+            return transpiled;
+        }
+
+        List<String> getErrors() {
+            return errors;
+        }
+
+        private void transpileLoop() {
+            try {
+                List<FrontendUtils.FileInfo> batch;
+                while ((batch = toTranspile.take()) != endOfSources) {
+                    if (!errors.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        transpileBatch(batch);
+                    } catch (Exception e) {
+                        errors.add(String.valueOf(e.getMessage()));
+                    }
+                }
+                toRegister.put(endOfJs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.add("Interrupted while transpiling");
+            }
+        }
+
+        private void transpileBatch(List<FrontendUtils.FileInfo> batch) throws IOException, InterruptedException {
+            long startTime = System.currentTimeMillis();
+            RoundMetrics.Phase phase = metrics.startPhase("pipelineTranspile");
+            Path batchDir = Files.createTempDirectory(workDir, "batch");
+            List<FrontendUtils.FileInfo> processedSources = preprocess(batch, Files.createDirectories(batchDir.resolve("preprocessed")));
+            Path jsOutput = Files.createDirectories(batchDir.resolve("js"));
+            J2clTranspilerOptions.Builder builder = getBuilder(getNativeSources(batch), processedSources).setOutput(jsOutput);
+            Problems transpileResult = transpile(builder.build());
+            if (transpileResult.reportAndGetExitCode(System.err) != 0) {
+                errors.addAll(transpileResult.getErrors());
+                return;
+            }
+            List<Path> jsFiles = moveTree(jsOutput, Paths.get(intermediateJsPath));
+            transpiled.addAll(batch);
+            phase.end(batch.size());
+            LOGGER.info("Transpiled " + batch.size() + " files: " + (System.currentTimeMillis() - startTime) + "millis");
+            toRegister.put(jsFiles);
+        }
+
+        private void registerLoop() {
+            try {
+                List<Path> jsFiles;
+                while ((jsFiles = toRegister.take()) != endOfJs) {
+                    for (Path jsFile : jsFiles) {
+                        if (jsMatcher.matches(jsFile)) {
+                            register(jsFile);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Hash the given js file, to be added to the <code>PersistentInputStore</code> by {@link #finish()}, so that
+         * {@link #refreshPersistentInputStore(PersistentInputStore, String)} does not have to do it again
+         * @param jsFile
+         */
+        private void register(Path jsFile) {
+            try {
+                long hashedMillis = System.currentTimeMillis();
+                BasicFileAttributes attrs = Files.readAttributes(jsFile, BasicFileAttributes.class);
+                hashed.put(jsFile.toString(), new JsDigest(attrs.size(), attrs.lastModifiedTime().toMillis(), hash(jsFile.toFile()), hashedMillis));
+            } catch (IOException e) {
+                // it will be hashed by refreshPersistentInputStore
+                hashed.remove(jsFile.toString());
+            }
+        }
+    }
+
     static class InProcessJsCompRunner extends CommandLineRunner {
 
         private final Compiler compiler;
@@ -0,0 +1,121 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Detects the changes inside the source directories through a <code>WatchService</code>, instead of polling them.
+ * <p>
+ * All the directories under the given roots are registered, and the ones created later are registered as soon
+ * as they show up. Bursts of events are coalesced: once a change is detected, events are collected until none
+ * arrives for the whole debounce window.
+ */
+class SourceWatcher implements Closeable {
+
+    private final static Logger LOGGER = Logger.getLogger(SourceWatcher.class.getName());
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final long debounceMillis;
+    private boolean overflow;
+
+    SourceWatcher(Collection<Path> roots, long debounceMillis) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerAll(root);
+            } else {
+                LOGGER.info("Not watching " + root + ": no such directory");
+            }
+        }
+        LOGGER.info("Watching " + watchedDirs.size() + " directories");
+    }
+
+    /**
+     * Blocks until a change is detected, and then returns all the files changed until the debounce window elapses
+     * without any other event. Deleted files are included, too.
+     * @return
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    Set<Path> take() throws InterruptedException, IOException {
+        Set<Path> toReturn = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            handle(key, toReturn);
+            key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns <code>true</code> if some events have been lost since the last invocation, so that the changes
+     * returned by {@link #take()} may be incomplete
+     * @return
+     */
+    boolean overflowed() {
+        boolean toReturn = overflow;
+        overflow = false;
+        return toReturn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void handle(WatchKey key, Set<Path> toPopulate) throws IOException {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                overflow = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // files may have been written in there before the registration
+                registerAll(path);
+                try (Stream<Path> files = Files.walk(path)) {
+                    toPopulate.addAll(files.filter(Files::isRegularFile).collect(Collectors.toList()));
+                }
+            } else {
+                toPopulate.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void registerAll(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
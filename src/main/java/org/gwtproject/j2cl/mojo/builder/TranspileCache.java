@@ -0,0 +1,203 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of the outputs of single compilation units, i.e. of the class files written
+ * by javac and of the files written by J2CL.
+ * <p>
+ * Each entry is a directory named after its key, with a <code>meta</code> file recording the ABI of the unit and
+ * of its dependencies at the time it was compiled, and the <code>classes</code> and <code>js</code> directories
+ * with the outputs. Entries are evicted in least recently used order once the total size exceeds the given bound.
+ */
+class TranspileCache {
+
+    private final static Logger LOGGER = Logger.getLogger(TranspileCache.class.getName());
+
+    private static final String META = "meta";
+    private static final String CLASSES = "classes";
+    private static final String JS = "js";
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long totalBytes;
+
+    TranspileCache(Path cacheDir, long maxBytes) throws IOException {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(cacheDir);
+        List<Path> metaFiles = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDir)) {
+            for (Path entry : entries) {
+                Path meta = entry.resolve(META);
+                if (Files.isRegularFile(meta)) {
+                    metaFiles.add(meta);
+                }
+            }
+        }
+        metaFiles.sort(Comparator.comparingLong(TranspileCache::lastModified));
+        for (Path meta : metaFiles) {
+            Properties properties = readMeta(meta);
+            if (properties != null) {
+                long size = Long.parseLong(properties.getProperty("size", "0"));
+                entrySizes.put(meta.getParent().getFileName().toString(), size);
+                totalBytes += size;
+            }
+        }
+        LOGGER.info("Transpile cache " + cacheDir + ": " + entrySizes.size() + " entries, " + totalBytes / 1024 + " KB");
+    }
+
+    /**
+     * Copy the outputs of the entry with the given <b>key</b> to the given directories, if the entry exists and it
+     * has been compiled against the same ABIs
+     * @param key
+     * @param abiHash the current ABI of the unit
+     * @param dependenciesAbiHash the current ABI of the types the unit references
+     * @param jsOutput
+     * @param classesDir
+     * @return <code>true</code> if the outputs have been restored
+     * @throws IOException
+     */
+    synchronized boolean restore(String key, String abiHash, String dependenciesAbiHash, Path jsOutput, Path classesDir) throws IOException {
+        if (!entrySizes.containsKey(key)) {
+            return false;
+        }
+        Path entry = cacheDir.resolve(key);
+        Properties properties = readMeta(entry.resolve(META));
+        if (properties == null || !abiHash.equals(properties.getProperty("abi")) || !dependenciesAbiHash.equals(properties.getProperty("dependencies"))) {
+            return false;
+        }
+        copyTree(entry.resolve(CLASSES), classesDir);
+        copyTree(entry.resolve(JS), jsOutput);
+        Files.setLastModifiedTime(entry.resolve(META), FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Store the given outputs in the entry with the given <b>key</b>, replacing the existing one
+     * @param key
+     * @param abiHash the ABI of the unit
+     * @param dependenciesAbiHash the ABI of the types the unit references
+     * @param jsOutput
+     * @param jsFiles the J2CL outputs, relative to <b>jsOutput</b>
+     * @param classesDir
+     * @param classFiles the class files, relative to <b>classesDir</b>
+     * @throws IOException
+     */
+    synchronized void put(String key, String abiHash, String dependenciesAbiHash, Path jsOutput, Collection<Path> jsFiles, Path classesDir, Collection<Path> classFiles) throws IOException {
+        Path tmp = Files.createTempDirectory(cacheDir, key + "-");
+        try {
+            long size = copyFiles(classesDir, classFiles, tmp.resolve(CLASSES)) + copyFiles(jsOutput, jsFiles, tmp.resolve(JS));
+            Properties properties = new Properties();
+            properties.setProperty("abi", abiHash);
+            properties.setProperty("dependencies", dependenciesAbiHash);
+            properties.setProperty("size", String.valueOf(size));
+            try (OutputStream outputStream = Files.newOutputStream(tmp.resolve(META))) {
+                properties.store(outputStream, null);
+            }
+            remove(key);
+            Files.move(tmp, cacheDir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            entrySizes.put(key, size);
+            totalBytes += size;
+        } finally {
+            if (Files.exists(tmp)) {
+                deleteTree(tmp);
+            }
+        }
+    }
+
+    /**
+     * Remove the least recently used entries until the size of the cache is within its bound
+     * @throws IOException
+     */
+    synchronized void evict() throws IOException {
+        int evicted = 0;
+        Iterator<String> keys = new ArrayList<>(entrySizes.keySet()).iterator();
+        while (totalBytes > maxBytes && keys.hasNext()) {
+            remove(keys.next());
+            evicted++;
+        }
+        if (evicted > 0) {
+            LOGGER.info("Evicted " + evicted + " entries from the transpile cache");
+        }
+    }
+
+    private void remove(String key) throws IOException {
+        Long size = entrySizes.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        Path entry = cacheDir.resolve(key);
+        if (Files.exists(entry)) {
+            deleteTree(entry);
+        }
+    }
+
+    private static long copyFiles(Path sourceDir, Collection<Path> relativePaths, Path targetDir) throws IOException {
+        long toReturn = 0;
+        for (Path relativePath : relativePaths) {
+            Path target = targetDir.resolve(relativePath.toString());
+            Files.createDirectories(target.getParent());
+            Files.copy(sourceDir.resolve(relativePath), target, StandardCopyOption.REPLACE_EXISTING);
+            toReturn += Files.size(target);
+        }
+        return toReturn;
+    }
+
+    private static void copyTree(Path sourceDir, Path targetDir) throws IOException {
+        if (!Files.isDirectory(sourceDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(sourceDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Path target = targetDir.resolve(sourceDir.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Properties readMeta(Path meta) {
+        try (InputStream inputStream = Files.newInputStream(meta)) {
+            Properties toReturn = new Properties();
+            toReturn.load(inputStream);
+            return toReturn;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -51,4 +51,84 @@ public interface Gwt3Options {
     String getOutputJsFilename();
 
     boolean getRecompileIfFilesChanged();
+
+    /**
+     * Returns the number of threads used to pre-transpile the dependencies: when greater than 1, independent
+     * jars are transpiled concurrently, each one as soon as the jars it depends on are done.
+     * <p>
+     * J2CL does not document its transpiler as thread-safe, so concurrent runs inside the same JVM are opt-in: the
+     * default, 1, never runs two transpilations at the same time
+     */
+    int getDependencyThreads();
+
+    /**
+     * Returns the number of threads used to compile the reactor modules: when greater than 0, each module is
+     * compiled on its own, with its own classpath and output directory, independent modules concurrently
+     */
+    int getModuleThreads();
+
+    /**
+     * Returns the number of threads used to transpile the project sources: when greater than 1, the sources are
+     * split in as many shards, transpiled concurrently.
+     * <p>
+     * As for {@link #getDependencyThreads()}, concurrent J2CL runs are opt-in: the default, 1, transpiles all the
+     * sources in a single run
+     */
+    int getTranspileThreads();
+
+    /**
+     * Returns <code>true</code> if, when modules are compiled one by one (see {@link #getModuleThreads()}), each
+     * module has to be transpiled, and its js registered for closure, while javac goes on with the other ones
+     */
+    boolean isPipelineStages();
+
+    /**
+     * Returns <code>true</code> if source changes have to be detected by polling the source directories, instead of
+     * watching them
+     */
+    boolean isPollForChanges();
+
+    /**
+     * Returns the time, in milliseconds, file events are collected for after a change, so that a burst of changes is
+     * compiled in a single round
+     */
+    int getWatchDebounceMillis();
+
+    /**
+     * Returns the maximum size, in megabytes, of the cache of the transpiled project sources; 0 disables it
+     */
+    int getTranspileCacheSize();
+
+    /**
+     * Returns the maximum size, in megabytes, of the transpiled dependencies kept in the jszip cache; 0 means
+     * unbounded
+     */
+    int getJsZipCacheSize();
+
+    /**
+     * Returns the url of the remote cache of the transpiled dependencies, or <code>null</code> if there is none
+     */
+    String getRemoteCacheUrl();
+
+    /**
+     * Returns <code>true</code> if the dependencies transpiled locally have to be uploaded to the remote cache
+     */
+    boolean isRemoteCachePush();
+
+    /**
+     * Returns <code>true</code> if the dependencies that already failed to transpile have to be transpiled again,
+     * instead of being skipped until they or their classpath change
+     */
+    boolean isRetryFailedDependencies();
+
+    /**
+     * Returns <code>true</code> if the transpiled dependencies are written uncompressed, so that closure does not
+     * inflate them on every round
+     */
+    boolean isStoredJsZips();
+
+    /**
+     * Returns <code>true</code> if javac keeps the package listings of the classpath between compilations
+     */
+    boolean isCacheClasspathListings();
 }
@@ -0,0 +1,369 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Computes fingerprints of the public API of compiled classes, reading the class files directly.
+ * <p>
+ * Only public and protected members of public (or, for nested classes, protected) classes are considered: their
+ * names, descriptors, generic signatures, thrown exceptions, annotations and constant values (since constants are
+ * inlined by the users). Method bodies and private members do not change the fingerprint. The visibility of nested
+ * classes is read from their <code>InnerClasses</code> attribute, since their own access flags only tell public
+ * from package-private.
+ * <p>
+ * The ABI of each class file is cached as long as its size and last modified time do not change.
+ */
+public class ClassFileAbi {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PROTECTED = 0x0004;
+
+    private final Map<Path, CachedAbi> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a fingerprint of the public API of all the given class files, ordered by the name of their class (so
+     * that same-named classes of different packages are told apart)
+     * @param classFiles
+     * @return
+     * @throws IOException
+     */
+    public String fingerprint(Collection<Path> classFiles) throws IOException {
+        Map<String, String> abis = new TreeMap<>();
+        for (Path classFile : classFiles) {
+            CachedAbi cached = read(classFile);
+            if (!cached.abi.isEmpty()) {
+                abis.put(cached.className, cached.abi);
+            }
+        }
+        StringBuilder toDigest = new StringBuilder();
+        abis.values().forEach(abi -> toDigest.append(abi).append('\n'));
+        return DigestUtils.md5Hex(toDigest.toString());
+    }
+
+    /**
+     * Returns the public API of the given class file, as a <code>String</code>; it is empty for non-public classes
+     * @param classFile
+     * @return
+     * @throws IOException
+     */
+    public String getAbi(Path classFile) throws IOException {
+        return read(classFile).abi;
+    }
+
+    /**
+     * Returns the name of the source file the given class file has been compiled from (e.g. <code>Foo.java</code>
+     * for <code>Foo$Bar.class</code>, or for a secondary top-level type <code>Baz.class</code> declared in
+     * <code>Foo.java</code>), from its <code>SourceFile</code> attribute or, if missing, from its outermost class
+     * @param classFile
+     * @return
+     * @throws IOException
+     */
+    public String getSourceName(Path classFile) throws IOException {
+        return read(classFile).sourceName;
+    }
+
+    private CachedAbi read(Path classFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(classFile, BasicFileAttributes.class);
+        CachedAbi cached = cache.get(classFile);
+        if (cached != null && cached.size == attributes.size() && cached.lastModified == attributes.lastModifiedTime().toMillis()) {
+            return cached;
+        }
+        try (InputStream inputStream = Files.newInputStream(classFile)) {
+            cached = readAbi(new DataInputStream(new BufferedInputStream(inputStream)), attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+        cache.put(classFile, cached);
+        return cached;
+    }
+
+    private static CachedAbi readAbi(DataInputStream in, long size, long lastModified) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+        ConstantPool constantPool = new ConstantPool(in);
+        int access = in.readUnsignedShort();
+        String thisClass = constantPool.getClassName(in.readUnsignedShort());
+        int superIndex = in.readUnsignedShort();
+        String superClass = superIndex != 0 ? constantPool.getClassName(superIndex) : "";
+        Set<String> interfaces = new TreeSet<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            interfaces.add(constantPool.getClassName(in.readUnsignedShort()));
+        }
+        Set<String> members = new TreeSet<>();
+        for (int kind = 0; kind < 2; kind++) {
+            for (int i = in.readUnsignedShort(); i > 0; i--) {
+                int memberAccess = in.readUnsignedShort();
+                String member = (kind == 0 ? "field " : "method ") + memberAccess + " "
+                        + constantPool.getUtf8(in.readUnsignedShort()) + " " + constantPool.getUtf8(in.readUnsignedShort())
+                        + readAttributes(in, constantPool);
+                if ((memberAccess & (ACC_PUBLIC | ACC_PROTECTED)) != 0) {
+                    members.add(member);
+                }
+            }
+        }
+        ClassAttributes classAttributes = readClassAttributes(in, constantPool, thisClass);
+        if (classAttributes.innerAccess >= 0) {
+            access = classAttributes.innerAccess;
+        }
+        String sourceName = classAttributes.sourceFile;
+        if (sourceName == null) {
+            String simpleName = thisClass.substring(thisClass.lastIndexOf('/') + 1);
+            int nestedSeparator = simpleName.indexOf('$');
+            sourceName = (nestedSeparator > 0 ? simpleName.substring(0, nestedSeparator) : simpleName) + ".java";
+        }
+        if ((access & (ACC_PUBLIC | ACC_PROTECTED)) == 0) {
+            return new CachedAbi(size, lastModified, thisClass, "", sourceName);
+        }
+        StringBuilder toReturn = new StringBuilder();
+        toReturn.append("class ").append(access).append(' ').append(thisClass).append(" extends ").append(superClass)
+                .append(" implements ").append(interfaces).append(classAttributes.api).append('\n');
+        members.forEach(member -> toReturn.append(member).append('\n'));
+        return new CachedAbi(size, lastModified, thisClass, toReturn.toString(), sourceName);
+    }
+
+    /**
+     * Reads the attributes of the class, the ones that are part of the API together with the access flags of the
+     * class in its <code>InnerClasses</code> attribute and its <code>SourceFile</code>
+     * @param in
+     * @param constantPool
+     * @param thisClass
+     * @return
+     * @throws IOException
+     */
+    private static ClassAttributes readClassAttributes(DataInputStream in, ConstantPool constantPool, String thisClass) throws IOException {
+        ClassAttributes toReturn = new ClassAttributes();
+        StringBuilder api = new StringBuilder();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            String name = constantPool.getUtf8(in.readUnsignedShort());
+            int length = in.readInt();
+            switch (name) {
+                case "InnerClasses":
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        int innerClass = in.readUnsignedShort();
+                        in.readUnsignedShort(); // outer class
+                        in.readUnsignedShort(); // inner name
+                        int innerAccess = in.readUnsignedShort();
+                        if (innerClass != 0 && constantPool.getClassName(innerClass).equals(thisClass)) {
+                            toReturn.innerAccess = innerAccess;
+                        }
+                    }
+                    break;
+                case "SourceFile":
+                    toReturn.sourceFile = constantPool.getUtf8(in.readUnsignedShort());
+                    break;
+                case "Signature":
+                    api.append(" signature ").append(constantPool.getUtf8(in.readUnsignedShort()));
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        api.append(' ');
+                        readAnnotation(in, constantPool, api);
+                    }
+                    break;
+                default:
+                    skipFully(in, length);
+            }
+        }
+        toReturn.api = api.toString();
+        return toReturn;
+    }
+
+    /**
+     * Reads the attributes that are part of the API, skipping all the others (e.g. Code)
+     * @param in
+     * @param constantPool
+     * @return
+     * @throws IOException
+     */
+    private static String readAttributes(DataInputStream in, ConstantPool constantPool) throws IOException {
+        StringBuilder toReturn = new StringBuilder();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            String name = constantPool.getUtf8(in.readUnsignedShort());
+            int length = in.readInt();
+            switch (name) {
+                case "Signature":
+                    toReturn.append(" signature ").append(constantPool.getUtf8(in.readUnsignedShort()));
+                    break;
+                case "ConstantValue":
+                    toReturn.append(" = ").append(constantPool.getConstant(in.readUnsignedShort()));
+                    break;
+                case "Exceptions":
+                    toReturn.append(" throws");
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        toReturn.append(' ').append(constantPool.getClassName(in.readUnsignedShort()));
+                    }
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        toReturn.append(' ');
+                        readAnnotation(in, constantPool, toReturn);
+                    }
+                    break;
+                default:
+                    skipFully(in, length);
+            }
+        }
+        return toReturn.toString();
+    }
+
+    private static void readAnnotation(DataInputStream in, ConstantPool constantPool, StringBuilder toPopulate) throws IOException {
+        toPopulate.append('@').append(constantPool.getUtf8(in.readUnsignedShort())).append('(');
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            toPopulate.append(constantPool.getUtf8(in.readUnsignedShort())).append('=');
+            readElementValue(in, constantPool, toPopulate);
+            toPopulate.append(',');
+        }
+        toPopulate.append(')');
+    }
+
+    private static void readElementValue(DataInputStream in, ConstantPool constantPool, StringBuilder toPopulate) throws IOException {
+        char tag = (char) in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                toPopulate.append(constantPool.getUtf8(in.readUnsignedShort())).append('.').append(constantPool.getUtf8(in.readUnsignedShort()));
+                break;
+            case 'c':
+                toPopulate.append(constantPool.getUtf8(in.readUnsignedShort())).append(".class");
+                break;
+            case '@':
+                readAnnotation(in, constantPool, toPopulate);
+                break;
+            case '[':
+                toPopulate.append('{');
+                for (int i = in.readUnsignedShort(); i > 0; i--) {
+                    readElementValue(in, constantPool, toPopulate);
+                    toPopulate.append(',');
+                }
+                toPopulate.append('}');
+                break;
+            default:
+                // B C D F I J S Z s
+                toPopulate.append(constantPool.getConstant(in.readUnsignedShort()));
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int skipped = 0;
+        while (skipped < length) {
+            int current = in.skipBytes(length - skipped);
+            if (current <= 0) {
+                throw new IOException("Truncated class file");
+            }
+            skipped += current;
+        }
+    }
+
+    private static class ConstantPool {
+
+        private final Object[] values;
+
+        ConstantPool(DataInputStream in) throws IOException {
+            int count = in.readUnsignedShort();
+            values = new Object[count];
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: // Utf8
+                        values[i] = in.readUTF();
+                        break;
+                    case 3: // Integer
+                        values[i] = in.readInt();
+                        break;
+                    case 4: // Float
+                        values[i] = in.readFloat();
+                        break;
+                    case 5: // Long
+                        values[i++] = in.readLong();
+                        break;
+                    case 6: // Double
+                        values[i++] = in.readDouble();
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        values[i] = new Reference(in.readUnsignedShort());
+                        break;
+                    case 15: // MethodHandle
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.readInt();
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        String getUtf8(int index) {
+            return (String) values[index];
+        }
+
+        String getClassName(int index) {
+            return getUtf8(((Reference) values[index]).index);
+        }
+
+        Object getConstant(int index) {
+            Object value = values[index];
+            return value instanceof Reference ? getUtf8(((Reference) value).index) : value;
+        }
+    }
+
+    private static class Reference {
+
+        private final int index;
+
+        Reference(int index) {
+            this.index = index;
+        }
+    }
+
+    private static class CachedAbi {
+
+        private final long size;
+        private final long lastModified;
+        private final String className;
+        private final String abi;
+        private final String sourceName;
+
+        CachedAbi(long size, long lastModified, String className, String abi, String sourceName) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.className = className;
+            this.abi = abi;
+            this.sourceName = sourceName;
+        }
+    }
+
+    private static class ClassAttributes {
+
+        private int innerAccess = -1;
+        private String sourceFile;
+        private String api;
+    }
+}
@@ -0,0 +1,156 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * <code>TaskListener</code> that records, for every analyzed compilation unit, the types it declares, the types it
+ * references and its ABI, to populate a {@link DependencyIndex}
+ */
+class DependencyCollector implements TaskListener {
+
+    private final Trees trees;
+    private final Map<String, DependencyIndex.Unit> units = new HashMap<>();
+    private final Map<String, SortedMap<String, String>> abis = new HashMap<>();
+
+    DependencyCollector(JavacTask task) {
+        this.trees = Trees.instance(task);
+    }
+
+    @Override
+    public void started(TaskEvent e) {
+    }
+
+    @Override
+    public void finished(TaskEvent e) {
+        // ANALYZE is notified once for each top-level type
+        if (e.getKind() != TaskEvent.Kind.ANALYZE || e.getTypeElement() == null || e.getSourceFile() == null) {
+            return;
+        }
+        String sourcePath = DependencyIndex.normalize(Paths.get(e.getSourceFile().toUri()).toString());
+        DependencyIndex.Unit unit = units.computeIfAbsent(sourcePath, path -> new DependencyIndex.Unit());
+        TypeElement typeElement = e.getTypeElement();
+        populateDeclaredTypes(typeElement, unit.declaredTypes);
+        TreePath typePath = trees.getPath(typeElement);
+        if (typePath != null) {
+            new ReferenceScanner(unit.referencedTypes).scan(typePath, null);
+        }
+        unit.referencedTypes.removeAll(unit.declaredTypes);
+        StringBuilder abi = new StringBuilder();
+        appendAbi(typeElement, abi);
+        abis.computeIfAbsent(sourcePath, path -> new TreeMap<>()).put(typeElement.getQualifiedName().toString(), abi.toString());
+    }
+
+    /**
+     * Returns the units collected so far, mapped by their source path
+     * @return
+     */
+    Map<String, DependencyIndex.Unit> getUnits() {
+        abis.forEach((sourcePath, typeAbis) -> units.get(sourcePath).abiHash = DigestUtils.md5Hex(String.join("\n", typeAbis.values())));
+        return Collections.unmodifiableMap(units);
+    }
+
+    private static void populateDeclaredTypes(TypeElement typeElement, Set<String> toPopulate) {
+        toPopulate.add(typeElement.getQualifiedName().toString());
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                populateDeclaredTypes((TypeElement) enclosed, toPopulate);
+            }
+        }
+    }
+
+    /**
+     * Append all the non-private signatures of the given type, its annotations included since they may change
+     * the way the type is used (e.g. jsinterop ones)
+     * @param typeElement
+     * @param abi
+     */
+    private static void appendAbi(TypeElement typeElement, StringBuilder abi) {
+        abi.append(typeElement.getAnnotationMirrors()).append(typeElement.getModifiers()).append(' ')
+                .append(typeElement.getKind()).append(' ').append(typeElement.getQualifiedName())
+                .append(typeElement.getTypeParameters()).append(" extends ").append(typeElement.getSuperclass())
+                .append(" implements ").append(typeElement.getInterfaces()).append('\n');
+        for (Element member : typeElement.getEnclosedElements()) {
+            if (member.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            if (member instanceof TypeElement) {
+                appendAbi((TypeElement) member, abi);
+                continue;
+            }
+            abi.append(member.getAnnotationMirrors()).append(member.getModifiers()).append(' ')
+                    .append(member.getKind()).append(' ').append(member.getSimpleName()).append(' ').append(member.asType());
+            if (member instanceof ExecutableElement) {
+                abi.append(" throws ").append(((ExecutableElement) member).getThrownTypes());
+            } else if (member instanceof VariableElement && ((VariableElement) member).getConstantValue() != null) {
+                // constants are inlined by the users
+                abi.append(" = ").append(((VariableElement) member).getConstantValue());
+            }
+            abi.append('\n');
+        }
+    }
+
+    /**
+     * Collects the types that own the elements referenced by identifiers and member selections
+     */
+    private class ReferenceScanner extends TreePathScanner<Void, Void> {
+
+        private final Set<String> toPopulate;
+
+        ReferenceScanner(Set<String> toPopulate) {
+            this.toPopulate = toPopulate;
+        }
+
+        @Override
+        public Void visitIdentifier(IdentifierTree node, Void aVoid) {
+            addReference(trees.getElement(getCurrentPath()));
+            return super.visitIdentifier(node, aVoid);
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree node, Void aVoid) {
+            addReference(trees.getElement(getCurrentPath()));
+            return super.visitMemberSelect(node, aVoid);
+        }
+
+        private void addReference(Element element) {
+            if (element == null) {
+                return;
+            }
+            ElementKind kind = element.getKind();
+            if (!(element instanceof TypeElement) && !kind.isField() && kind != ElementKind.METHOD && kind != ElementKind.CONSTRUCTOR) {
+                // locals, parameters and packages
+                return;
+            }
+            while (element != null && !(element instanceof TypeElement)) {
+                element = element.getEnclosingElement();
+            }
+            // local and anonymous classes have no qualified name
+            if (element != null && !((TypeElement) element).getQualifiedName().toString().isEmpty()) {
+                toPopulate.add(((TypeElement) element).getQualifiedName().toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Persistent index of the compilation units compiled by {@link Javac}: for each source file it records the types it
+ * declares, the types it references and a hash of its ABI (i.e. of all its non-private signatures).
+ * <p>
+ * It is used to find the sources that have to be recompiled when the ABI of a type changes, instead of
+ * recompiling whole modules.
+ */
+public class DependencyIndex {
+
+    private final Map<String, Unit> units = new HashMap<>();
+    private Map<String, Set<String>> referencingUnits;
+    private Map<String, String> declaringUnits;
+
+    /**
+     * Read the index stored in the given <code>Path</code>; an empty index is returned if the file does not exist
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static DependencyIndex read(Path path) throws IOException {
+        DependencyIndex toReturn = new DependencyIndex();
+        if (!Files.isRegularFile(path)) {
+            return toReturn;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String unitPath = null;
+            Unit unit = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('\t');
+                if (separator < 0) {
+                    continue;
+                }
+                String value = line.substring(separator + 1);
+                String kind = line.substring(0, separator);
+                if (unit == null && !kind.equals("unit")) {
+                    throw new IOException("Malformed dependency index " + path);
+                }
+                switch (kind) {
+                    case "unit":
+                        if (unit != null) {
+                            toReturn.units.put(unitPath, unit);
+                        }
+                        unitPath = value;
+                        unit = new Unit();
+                        break;
+                    case "abi":
+                        unit.abiHash = value;
+                        break;
+                    case "declares":
+                        unit.declaredTypes.add(value);
+                        break;
+                    case "references":
+                        unit.referencedTypes.add(value);
+                        break;
+                    default:
+                        throw new IOException("Unexpected line in " + path + ": " + line);
+                }
+            }
+            if (unit != null) {
+                toReturn.units.put(unitPath, unit);
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the path used as key for the given source path
+     * @param sourcePath
+     * @return
+     */
+    public static String normalize(String sourcePath) {
+        return Paths.get(sourcePath).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Write the index to the given <code>Path</code>
+     * @param path
+     * @throws IOException
+     */
+    public synchronized void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Unit> entry : units.entrySet()) {
+                Unit unit = entry.getValue();
+                writer.write("unit\t" + entry.getKey() + "\n");
+                writer.write("abi\t" + unit.abiHash + "\n");
+                for (String declaredType : unit.declaredTypes) {
+                    writer.write("declares\t" + declaredType + "\n");
+                }
+                for (String referencedType : unit.referencedTypes) {
+                    writer.write("references\t" + referencedType + "\n");
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public synchronized boolean isEmpty() {
+        return units.isEmpty();
+    }
+
+    public synchronized Unit get(String sourcePath) {
+        return units.get(normalize(sourcePath));
+    }
+
+    /**
+     * Put the given units, replacing the old ones with the same path
+     * @param compiledUnits
+     */
+    public synchronized void update(Map<String, Unit> compiledUnits) {
+        compiledUnits.forEach((sourcePath, unit) -> units.put(normalize(sourcePath), unit));
+        referencingUnits = null;
+        declaringUnits = null;
+    }
+
+    /**
+     * Returns the paths of the units whose source file does not exist anymore
+     * @return
+     */
+    public synchronized Set<String> getMissing() {
+        Set<String> toReturn = new TreeSet<>();
+        units.keySet().stream().filter(sourcePath -> !Files.exists(Paths.get(sourcePath))).forEach(toReturn::add);
+        return toReturn;
+    }
+
+    /**
+     * Remove the units of the given source paths
+     * @param sourcePaths
+     */
+    public synchronized void remove(Collection<String> sourcePaths) {
+        boolean removed = false;
+        for (String sourcePath : sourcePaths) {
+            removed |= units.remove(normalize(sourcePath)) != null;
+        }
+        if (removed) {
+            referencingUnits = null;
+            declaringUnits = null;
+        }
+    }
+
+    /**
+     * Returns the paths of all the units that, directly or transitively, reference a type declared in the given
+     * source paths. The given paths are not included.
+     * @param sourcePaths
+     * @return
+     */
+    public synchronized Set<String> getTransitiveDependents(Collection<String> sourcePaths) {
+        Map<String, Set<String>> referencingUnits = getReferencingUnits();
+        Set<String> visited = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        sourcePaths.forEach(sourcePath -> {
+            String normalized = normalize(sourcePath);
+            visited.add(normalized);
+            toVisit.add(normalized);
+        });
+        Set<String> toReturn = new TreeSet<>();
+        while (!toVisit.isEmpty()) {
+            Unit unit = units.get(toVisit.poll());
+            if (unit == null) {
+                continue;
+            }
+            for (String declaredType : unit.declaredTypes) {
+                for (String dependent : referencingUnits.getOrDefault(declaredType, Collections.emptySet())) {
+                    if (visited.add(dependent)) {
+                        toReturn.add(dependent);
+                        toVisit.add(dependent);
+                    }
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the paths of the units directly referencing any of the given types
+     * @param types qualified type names
+     * @return
+     */
+    public synchronized Set<String> getReferencingUnits(Collection<String> types) {
+        Map<String, Set<String>> referencingUnits = getReferencingUnits();
+        Set<String> toReturn = new TreeSet<>();
+        types.forEach(type -> toReturn.addAll(referencingUnits.getOrDefault(type, Collections.emptySet())));
+        return toReturn;
+    }
+
+    private Map<String, Set<String>> getReferencingUnits() {
+        if (referencingUnits == null) {
+            referencingUnits = new HashMap<>();
+            units.forEach((sourcePath, unit) -> unit.referencedTypes
+                    .forEach(type -> referencingUnits.computeIfAbsent(type, t -> new HashSet<>()).add(sourcePath)));
+        }
+        return referencingUnits;
+    }
+
+    /**
+     * Returns a hash of the ABI of all the units declaring the types referenced by the given source path, i.e. of
+     * the API it has been compiled against; types not declared by any unit (e.g. from jars) only count by name.
+     * @param sourcePath
+     * @return the hash, or <code>null</code> if the source path is not indexed
+     */
+    public synchronized String getDependenciesAbiHash(String sourcePath) {
+        Unit unit = units.get(normalize(sourcePath));
+        if (unit == null) {
+            return null;
+        }
+        return getDependenciesAbiHash(unit, Collections.emptyMap());
+    }
+
+    /**
+     * Returns a hash of the ABI of all the units declaring the types referenced by the given unit, looking for them
+     * in this index and then in <b>otherDeclaringUnits</b> (e.g. the ones generated by annotation processors, that
+     * are not indexed)
+     * @param unit
+     * @param otherDeclaringUnits the units not indexed, by the qualified names of the types they declare
+     * @return
+     */
+    public synchronized String getDependenciesAbiHash(Unit unit, Map<String, Unit> otherDeclaringUnits) {
+        if (declaringUnits == null) {
+            declaringUnits = new HashMap<>();
+            units.forEach((path, declaring) -> declaring.declaredTypes.forEach(type -> declaringUnits.put(type, path)));
+        }
+        StringBuilder toDigest = new StringBuilder();
+        for (String referencedType : unit.referencedTypes) {
+            String declaringUnit = declaringUnits.get(referencedType);
+            Unit declaring = declaringUnit != null ? units.get(declaringUnit) : otherDeclaringUnits.get(referencedType);
+            toDigest.append(referencedType).append('=').append(declaring != null ? declaring.abiHash : "").append('\n');
+        }
+        return DigestUtils.md5Hex(toDigest.toString());
+    }
+
+    /**
+     * The data recorded for a single compilation unit
+     */
+    public static class Unit {
+
+        final Set<String> declaredTypes = new TreeSet<>();
+        final Set<String> referencedTypes = new TreeSet<>();
+        String abiHash = "";
+
+        public Set<String> getDeclaredTypes() {
+            return declaredTypes;
+        }
+
+        public Set<String> getReferencedTypes() {
+            return referencedTypes;
+        }
+
+        public String getAbiHash() {
+            return abiHash;
+        }
+    }
+}
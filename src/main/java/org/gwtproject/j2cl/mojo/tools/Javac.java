@@ -1,20 +1,36 @@
 package org.gwtproject.j2cl.mojo.tools;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
 import com.google.j2cl.common.FrontendUtils;
+import com.sun.source.util.JavacTask;
 
 /**
  * Runs javac. Set this up with the appropriate classpath, directory for generated sources to be written,
@@ -26,13 +42,42 @@ import com.google.j2cl.common.FrontendUtils;
  * Note that incoming sources should already be pre-processed, and while it should be safe to directly
  * j2cl the generated classes, it may be necessary to pre-process them before passing them to j2cl.
  */
-public class Javac {
+public class Javac implements SourceCompiler {
 
     List<String> javacOptions;
     JavaCompiler compiler;
     StandardJavaFileManager fileManager;
+    JavaFileManager recordingFileManager;
+    Map<String, DependencyIndex.Unit> compiledUnits = Collections.emptyMap();
+    Set<String> generatedSources = Collections.synchronizedSet(new LinkedHashSet<>());
+    boolean cacheClasspathListings;
+    List<Path> classpathDirectories;
+    Map<String, CachedListing> classpathListings = new ConcurrentHashMap<>();
+    AtomicLong listingNanos = new AtomicLong();
+    AtomicInteger listings = new AtomicInteger();
+    AtomicInteger cachedListings = new AtomicInteger();
+    long lastListingMillis;
+    long lastCompileMillis;
+    File classesDirFile;
+    List<FrontendUtils.FileInfo> failedSources = Collections.emptyList();
 
     public Javac(File generatedClassesPath, List<File> classpath, File classesDirFile, File bootstrap) throws IOException {
+        this(generatedClassesPath, classpath, classesDirFile, bootstrap, false);
+    }
+
+    /**
+     * @param generatedClassesPath
+     * @param classpath
+     * @param classesDirFile
+     * @param bootstrap
+     * @param cacheClasspathListings if <code>true</code>, the package listings of the classpath are kept between
+     *                               compilations, as long as the listed directories are not modified
+     * @throws IOException
+     */
+    public Javac(File generatedClassesPath, List<File> classpath, File classesDirFile, File bootstrap, boolean cacheClasspathListings) throws IOException {
+        this.cacheClasspathListings = cacheClasspathListings;
+        this.classesDirFile = classesDirFile;
+        classpathDirectories = classpath.stream().filter(File::isDirectory).map(File::toPath).collect(Collectors.toList());
         javacOptions = Arrays.asList("-implicit:none", "-bootclasspath", bootstrap.toString());
         compiler = ToolProvider.getSystemJavaCompiler();
         fileManager = compiler.getStandardFileManager(null, null, null);
@@ -40,16 +85,208 @@ public class Javac {
         fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singleton(generatedClassesPath));
         fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
         fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(classesDirFile));
+        recordingFileManager = new RecordingFileManager(fileManager);
     }
 
+    @Override
     public boolean compile(List<FrontendUtils.FileInfo> modifiedJavaFiles) {
+        if (modifiedJavaFiles.isEmpty()) {
+            compiledUnits = Collections.emptyMap();
+            return true;
+        }
         List<FrontendUtils.FileInfo> files = modifiedJavaFiles.stream()
                 .filter(file -> !file.originalPath()
                         .contains("target/generated-sources/annotations")).collect(Collectors.toList());
         Iterable<? extends JavaFileObject> modifiedFileObjects = fileManager.getJavaFileObjectsFromStrings(files.stream().map(FrontendUtils.FileInfo::sourcePath).collect(Collectors.toList()));
         //TODO pass-non null for "classes" to properly kick apt?
         //TODO consider a different classpath for this tasks, so as to not interfere with everything else?
-        CompilationTask task = compiler.getTask(null, fileManager, null, javacOptions, null, modifiedFileObjects);
-        return task.call();
+        CompilationTask task = compiler.getTask(null, recordingFileManager, null, javacOptions, null, modifiedFileObjects);
+        DependencyCollector dependencyCollector = addDependencyCollector(task);
+        long startTime = System.nanoTime();
+        long listingStarted = listingNanos.get();
+        boolean toReturn = task.call();
+        failedSources = toReturn ? Collections.emptyList() : modifiedJavaFiles;
+        lastCompileMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        lastListingMillis = TimeUnit.NANOSECONDS.toMillis(listingNanos.get() - listingStarted);
+        compiledUnits = dependencyCollector != null ? dependencyCollector.getUnits() : Collections.emptyMap();
+        return toReturn;
+    }
+
+    @Override
+    public List<FrontendUtils.FileInfo> getFailedSources() {
+        return failedSources;
+    }
+
+    @Override
+    public File getClassesDir(String sourcePath) {
+        return classesDirFile;
+    }
+
+    @Override
+    public List<File> getOutputDirs() {
+        return Collections.singletonList(classesDirFile);
+    }
+
+    @Override
+    public long getLastCompileMillis() {
+        return lastCompileMillis;
+    }
+
+    @Override
+    public long getLastListingMillis() {
+        return lastListingMillis;
+    }
+
+    @Override
+    public String getListingStats() {
+        return cachedListings.get() + "/" + listings.get();
+    }
+
+    @Override
+    public boolean processAnnotations(List<FrontendUtils.FileInfo> javaFiles) {
+        List<String> processOptions = new ArrayList<>(javacOptions);
+        processOptions.add("-proc:only");
+        Iterable<? extends JavaFileObject> fileObjects = fileManager.getJavaFileObjectsFromStrings(javaFiles.stream().map(FrontendUtils.FileInfo::sourcePath).collect(Collectors.toList()));
+        return compiler.getTask(null, recordingFileManager, null, processOptions, null, fileObjects).call();
+    }
+
+    @Override
+    public Set<String> getGeneratedSources() {
+        synchronized (generatedSources) {
+            return new LinkedHashSet<>(generatedSources);
+        }
+    }
+
+    @Override
+    public void clearGeneratedSources() {
+        generatedSources.clear();
+    }
+
+    @Override
+    public boolean hasAnnotationProcessors() {
+        ClassLoader classLoader = fileManager.getClassLoader(StandardLocation.CLASS_PATH);
+        try {
+            return classLoader != null && classLoader.getResources("META-INF/services/javax.annotation.processing.Processor").hasMoreElements();
+        } catch (IOException e) {
+            return true;
+        } finally {
+            if (classLoader instanceof Closeable) {
+                try {
+                    ((Closeable) classLoader).close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, DependencyIndex.Unit> getCompiledUnits() {
+        return compiledUnits;
+    }
+
+    private Iterable<JavaFileObject> listClasspath(JavaFileManager.Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            listings.incrementAndGet();
+            if (!cacheClasspathListings || recurse || (location != StandardLocation.CLASS_PATH && location != StandardLocation.PLATFORM_CLASS_PATH)) {
+                return fileManager.list(location, packageName, kinds, recurse);
+            }
+            // jars do not change, while new classes may be written in the directories
+            long[] stamps = new long[location == StandardLocation.CLASS_PATH ? classpathDirectories.size() : 0];
+            String packagePath = packageName.replace('.', File.separatorChar);
+            for (int i = 0; i < stamps.length; i++) {
+                Path packageDir = classpathDirectories.get(i).resolve(packagePath);
+                stamps[i] = Files.isDirectory(packageDir) ? Files.getLastModifiedTime(packageDir).toMillis() : -1;
+            }
+            String key = location.getName() + ":" + packageName + ":" + kinds;
+            CachedListing cached = classpathListings.get(key);
+            if (cached != null && cached.isValid(stamps)) {
+                cachedListings.incrementAndGet();
+                return cached.files;
+            }
+            long listed = System.currentTimeMillis();
+            List<JavaFileObject> files = new ArrayList<>();
+            fileManager.list(location, packageName, kinds, recurse).forEach(files::add);
+            classpathListings.put(key, new CachedListing(files, stamps, listed));
+            return files;
+        } finally {
+            listingNanos.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Forwards to the <code>StandardJavaFileManager</code>, recording the sources written by the annotation
+     * processors and caching the listings of the classpath
+     */
+    private class RecordingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        RecordingFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+            return listClasspath(location, packageName, kinds, recurse);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            JavaFileObject toReturn = super.getJavaFileForOutput(location, className, kind, sibling);
+            if (location == StandardLocation.SOURCE_OUTPUT && kind == JavaFileObject.Kind.SOURCE) {
+                generatedSources.add(Paths.get(toReturn.toUri()).toString());
+            }
+            return toReturn;
+        }
+    }
+
+    private static class CachedListing {
+
+        private final List<JavaFileObject> files;
+        private final long[] stamps;
+        private final long listed;
+
+        CachedListing(List<JavaFileObject> files, long[] stamps, long listed) {
+            this.files = files;
+            this.stamps = stamps;
+            this.listed = listed;
+        }
+
+        /**
+         * The listing is still valid if no directory has been modified since; directories modified around the
+         * listing time are listed again, since their modified time may be too coarse to tell
+         * @param currentStamps
+         * @return
+         */
+        boolean isValid(long[] currentStamps) {
+            if (!Arrays.equals(stamps, currentStamps)) {
+                return false;
+            }
+            for (long stamp : currentStamps) {
+                if (stamp >= listed - 2000) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Register a {@link DependencyCollector} on the given task
+     * @param task
+     * @return the registered collector, or <code>null</code> if the compiler does not expose the com.sun.source API
+     * to this classloader (e.g. tools.jar on java 8)
+     */
+    private static DependencyCollector addDependencyCollector(CompilationTask task) {
+        try {
+            if (task instanceof JavacTask) {
+                DependencyCollector toReturn = new DependencyCollector((JavacTask) task);
+                ((JavacTask) task).addTaskListener(toReturn);
+                return toReturn;
+            }
+        } catch (LinkageError e) {
+            // fall through
+        }
+        return null;
     }
 }
@@ -0,0 +1,90 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.j2cl.common.FrontendUtils;
+
+/**
+ * Compiles java sources to bytecode, running the annotation processors and recording the dependency data of the
+ * compiled units; implemented by {@link Javac}, with one classpath and output directory, and by compilers that
+ * split the sources among several <code>Javac</code> instances.
+ */
+public interface SourceCompiler {
+
+    /**
+     * Compile the given sources
+     * @param modifiedJavaFiles
+     * @return <code>true</code> if all of them compiled
+     */
+    boolean compile(List<FrontendUtils.FileInfo> modifiedJavaFiles);
+
+    /**
+     * Returns the sources that failed to compile in the last {@link #compile(List)}
+     * @return
+     */
+    List<FrontendUtils.FileInfo> getFailedSources();
+
+    /**
+     * Returns the directory the class files of the given source are written to
+     * @param sourcePath
+     * @return
+     */
+    File getClassesDir(String sourcePath);
+
+    /**
+     * Returns all the directories class files are written to
+     * @return
+     */
+    List<File> getOutputDirs();
+
+    /**
+     * Returns the time, in milliseconds, the last {@link #compile(List)} took
+     * @return
+     */
+    long getLastCompileMillis();
+
+    /**
+     * Returns the time, in milliseconds, the last {@link #compile(List)} spent listing the classpath packages
+     * @return
+     */
+    long getLastListingMillis();
+
+    /**
+     * Returns the number of classpath listings so far, and how many of them came from the cache, as
+     * <code>cached/total</code>
+     * @return
+     */
+    String getListingStats();
+
+    /**
+     * Only run the annotation processors over the given sources, writing the generated sources but no class files
+     * @param javaFiles
+     * @return
+     */
+    boolean processAnnotations(List<FrontendUtils.FileInfo> javaFiles);
+
+    /**
+     * Returns the paths of the sources written by the annotation processors since the last
+     * {@link #clearGeneratedSources()}
+     * @return
+     */
+    Set<String> getGeneratedSources();
+
+    void clearGeneratedSources();
+
+    /**
+     * Returns <code>true</code> if any annotation processor is registered in the classpath
+     * @return
+     */
+    boolean hasAnnotationProcessors();
+
+    /**
+     * Returns the dependency data of the compilation units analyzed by the last {@link #compile(List)}, mapped by
+     * their source path
+     * @return
+     */
+    Map<String, DependencyIndex.Unit> getCompiledUnits();
+}
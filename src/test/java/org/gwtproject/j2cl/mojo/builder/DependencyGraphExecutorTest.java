@@ -0,0 +1,71 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link DependencyGraphExecutor} over a small graph: <code>c</code> depends on <code>b</code>, that depends on
+ * <code>a</code>; <code>d</code> is independent
+ */
+public class DependencyGraphExecutorTest {
+
+    private final Map<String, List<String>> dependencies = new HashMap<>();
+
+    {
+        dependencies.put("b", Collections.singletonList("a"));
+        dependencies.put("c", Arrays.asList("b", "outside"));
+    }
+
+    @Test
+    public void dependenciesRunFirst() throws IOException {
+        List<String> handled = new CopyOnWriteArrayList<>();
+        new DependencyGraphExecutor<String>(4).execute(Arrays.asList("c", "d", "b", "a"), dependencies, handled::add);
+
+        assertEquals(4, handled.size());
+        assertTrue(handled.indexOf("a") < handled.indexOf("b"));
+        assertTrue(handled.indexOf("b") < handled.indexOf("c"));
+    }
+
+    @Test
+    public void dependentsOfFailedNodesAreSkipped() {
+        Set<String> handled = ConcurrentHashMap.newKeySet();
+        try {
+            new DependencyGraphExecutor<String>(2).execute(Arrays.asList("a", "b", "c", "d"), dependencies, node -> {
+                if (node.equals("a")) {
+                    throw new IOException("failed " + node);
+                }
+                handled.add(node);
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed a", e.getMessage());
+        }
+        assertEquals(Collections.singleton("d"), handled);
+    }
+
+    @Test
+    public void runtimeExceptionsAreRethrown() throws IOException {
+        try {
+            new DependencyGraphExecutor<String>(1).execute(Arrays.asList("a", "d"), dependencies, node -> {
+                throw new IllegalStateException(node);
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertFalse(e.getMessage().isEmpty());
+        }
+    }
+}
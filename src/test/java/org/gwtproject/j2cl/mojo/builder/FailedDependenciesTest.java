@@ -0,0 +1,103 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the keys of {@link FailedDependencies}, with a classpath made of a jar and a directory of class files
+ */
+public class FailedDependenciesTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File jar;
+    private File dependencyJar;
+    private File classesDir;
+    private List<String> classpath;
+
+    @Before
+    public void setup() throws IOException {
+        jar = folder.newFile("foo.jar");
+        dependencyJar = folder.newFile("bar.jar");
+        Files.write(dependencyJar.toPath(), new byte[10]);
+        classesDir = folder.newFolder("classes");
+        classpath = Arrays.asList(dependencyJar.getPath(), classesDir.getPath());
+    }
+
+    @Test
+    public void keysIgnoreTheDirectoriesModifiedTime() throws IOException {
+        compile("public class Foo { public void run() { System.out.println(1); } }");
+        FailedDependencies failedDependencies = new FailedDependencies(folder.getRoot().toPath(), false);
+        String key = failedDependencies.getKey("abc", jar, classpath);
+
+        compile("public class Foo { public void run() { System.out.println(2); } }");
+        assertEquals(key, failedDependencies.getKey("abc", jar, classpath));
+        assertTrue(key.startsWith("abc-foo.jar."));
+    }
+
+    @Test
+    public void keysFollowTheDirectoriesApi() throws IOException {
+        compile("public class Foo { public void run() {} }");
+        FailedDependencies failedDependencies = new FailedDependencies(folder.getRoot().toPath(), false);
+        String key = failedDependencies.getKey("abc", jar, classpath);
+
+        compile("public class Foo { public void run(int count) {} }");
+        assertNotEquals(key, failedDependencies.getKey("abc", jar, classpath));
+    }
+
+    @Test
+    public void keysFollowTheJars() throws IOException {
+        FailedDependencies failedDependencies = new FailedDependencies(folder.getRoot().toPath(), false);
+        String key = failedDependencies.getKey("abc", jar, classpath);
+
+        Files.write(dependencyJar.toPath(), new byte[20]);
+        assertNotEquals(key, failedDependencies.getKey("abc", jar, classpath));
+        assertNotEquals(key, failedDependencies.getKey("def", jar, classpath));
+    }
+
+    @Test
+    public void failedJarsAreSkippedUntilTheySucceed() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        FailedDependencies failedDependencies = new FailedDependencies(cacheDir, false);
+        String key = failedDependencies.getKey("abc", jar, classpath);
+        assertFalse(failedDependencies.isToSkip(jar, key));
+
+        failedDependencies.failed(jar, key, "error: something");
+        Path log = cacheDir.resolve("failed").resolve(key + ".log");
+        assertTrue(new String(Files.readAllBytes(log), StandardCharsets.UTF_8).contains("error: something"));
+        Files.setLastModifiedTime(log, FileTime.fromMillis(0));
+        assertTrue(failedDependencies.isToSkip(jar, key));
+        assertTrue(Files.getLastModifiedTime(log).toMillis() > 0);
+        assertFalse(new FailedDependencies(cacheDir, true).isToSkip(jar, key));
+
+        failedDependencies.succeeded(key);
+        assertFalse(failedDependencies.isToSkip(jar, key));
+    }
+
+    private void compile(String source) throws IOException {
+        Path sourceFile = folder.getRoot().toPath().resolve("Foo.java");
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classesDir.getPath(), sourceFile.toString()));
+        // as after a new compilation
+        Files.setLastModifiedTime(classesDir.toPath().resolve("Foo.class"), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+}
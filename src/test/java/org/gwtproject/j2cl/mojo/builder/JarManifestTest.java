@@ -0,0 +1,92 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the hashes and results recorded by {@link JarManifest}, and their persistence
+ */
+public class JarManifestTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resultsAreKeptWhileTheJarIsUnchanged() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("jar-manifest");
+        File jar = write("foo.jar", 10, 1);
+        JarManifest jarManifest = new JarManifest(path);
+        assertEquals(DigestUtils.md5Hex(Files.readAllBytes(jar.toPath())), jarManifest.getHash(jar));
+        assertNull(jarManifest.getResult(jar));
+        jarManifest.putResult(jar, "foo.js.zip");
+        jarManifest.write();
+
+        JarManifest read = new JarManifest(path);
+        assertEquals("foo.js.zip", read.getResult(jar));
+        write("foo.jar", 20, 2);
+        assertNull(read.getResult(jar));
+    }
+
+    @Test
+    public void jarsWithoutResultAreNotWritten() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("jar-manifest");
+        File jar = write("foo.jar", 10, 1);
+        File empty = write("empty.jar", 10, 1);
+        JarManifest jarManifest = new JarManifest(path);
+        jarManifest.getHash(jar);
+        jarManifest.getHash(empty);
+        jarManifest.putResult(empty, "");
+        jarManifest.write();
+
+        JarManifest read = new JarManifest(path);
+        assertNull(read.getResult(jar));
+        assertEquals("", read.getResult(empty));
+    }
+
+    @Test
+    public void jarsAreHashedConcurrently() throws Exception {
+        JarManifest jarManifest = new JarManifest(folder.getRoot().toPath().resolve("jar-manifest"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<File> jars = new ArrayList<>();
+            List<Future<String>> hashes = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                File jar = write("jar" + i + ".jar", 1024 * (i + 1), 1);
+                jars.add(jar);
+                hashes.add(executor.submit(() -> jarManifest.getHash(jar)));
+            }
+            for (int i = 0; i < jars.size(); i++) {
+                assertEquals(DigestUtils.md5Hex(Files.readAllBytes(jars.get(i).toPath())), hashes.get(i).get());
+                jarManifest.putResult(jars.get(i), "jar" + i + ".js.zip");
+                assertEquals("jar" + i + ".js.zip", jarManifest.getResult(jars.get(i)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private File write(String name, int size, int minutes) throws IOException {
+        File toReturn = new File(folder.getRoot(), name);
+        byte[] content = new byte[size];
+        content[0] = (byte) size;
+        Files.write(toReturn.toPath(), content);
+        Files.setLastModifiedTime(toReturn.toPath(), FileTime.fromMillis(minutes * 60_000L));
+        return toReturn;
+    }
+}
@@ -0,0 +1,130 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the entry names of {@link JsZipCache} and its eviction of the least recently used entries, of the current
+ * toolchain, of the other ones and of the failure logs
+ */
+public class JsZipCacheTest {
+
+    private static final int SIZE = 1000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entryPathsIncludeTheFormat() throws IOException {
+        Path root = folder.getRoot().toPath();
+        JsZipCache deflated = new JsZipCache(root, 0, false);
+        JsZipCache stored = new JsZipCache(root, 0, true);
+
+        assertEquals(deflated.getDir(), stored.getDir());
+        assertEquals(deflated.getDir().resolve("abc-foo.jar.js.zip").toString(), deflated.getEntryPath("abc", "foo.jar"));
+        assertEquals(deflated.getDir().resolve("abc-foo.jar.stored.js.zip").toString(), stored.getEntryPath("abc", "foo.jar"));
+        assertNotEquals(deflated.getToolchain(), stored.getToolchain());
+    }
+
+    @Test
+    public void otherToolchainsAreKeptUntilEvicted() throws IOException {
+        Path root = folder.getRoot().toPath();
+        Path other = write(root.resolve("toolchain-other").resolve("abc-foo.jar.js.zip"), 1);
+        JsZipCache jsZipCache = new JsZipCache(root, 0, false);
+        assertTrue(Files.isRegularFile(other));
+
+        jsZipCache.built(write(Paths.get(jsZipCache.getEntryPath("abc", "foo.jar")), 2).toString());
+        jsZipCache.evictAndWrite();
+        assertTrue(Files.isRegularFile(other));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() throws IOException {
+        Path root = folder.getRoot().toPath();
+        JsZipCache previous = new JsZipCache(root, 0, false);
+        Path oldest = write(Paths.get(previous.getEntryPath("abc", "oldest.jar")), 1);
+        Path other = write(root.resolve("toolchain-other").resolve("abc-other.jar.js.zip"), 2);
+        Path legacy = write(root.resolve("abc-legacy.jar.js.zip"), 3);
+        Path recent = write(Paths.get(previous.getEntryPath("abc", "recent.jar")), 4);
+
+        JsZipCache jsZipCache = new JsZipCache(root, 3 * SIZE, false);
+        Path used = write(Paths.get(jsZipCache.getEntryPath("abc", "used.jar")), 5);
+        jsZipCache.built(used.toString());
+        jsZipCache.evictAndWrite();
+
+        assertFalse(Files.exists(oldest));
+        assertFalse(Files.exists(other));
+        assertTrue(Files.isRegularFile(legacy));
+        assertTrue(Files.isRegularFile(recent));
+        assertTrue(Files.isRegularFile(used));
+    }
+
+    @Test
+    public void usedEntriesAreNeverEvicted() throws IOException {
+        Path root = folder.getRoot().toPath();
+        JsZipCache jsZipCache = new JsZipCache(root, SIZE, false);
+        Path first = write(Paths.get(jsZipCache.getEntryPath("abc", "first.jar")), 1);
+        Path second = write(Paths.get(jsZipCache.getEntryPath("abc", "second.jar")), 2);
+        jsZipCache.built(first.toString());
+        jsZipCache.hit(second.toString());
+        jsZipCache.evictAndWrite();
+
+        assertTrue(Files.isRegularFile(first));
+        assertTrue(Files.isRegularFile(second));
+    }
+
+    @Test
+    public void entriesLockedByOtherBuildsAreKept() throws IOException {
+        Path root = folder.getRoot().toPath();
+        JsZipCache previous = new JsZipCache(root, 0, false);
+        Path locked = write(Paths.get(previous.getEntryPath("abc", "locked.jar")), 1);
+
+        JsZipCache jsZipCache = new JsZipCache(root, 1, false);
+        try (CacheLock ignored = CacheLock.lock(jsZipCache.getLockFile(locked.getFileName().toString()))) {
+            jsZipCache.evictAndWrite();
+        }
+        assertTrue(Files.isRegularFile(locked));
+    }
+
+    @Test
+    public void failureLogsAreEvicted() throws IOException {
+        Path root = folder.getRoot().toPath();
+        JsZipCache jsZipCache = new JsZipCache(root, SIZE, false);
+        Path ownLog = write(jsZipCache.getDir().resolve("failed").resolve("abc-foo.jar.def.log"), 1);
+        Path otherLog = write(root.resolve("toolchain-other").resolve("failed").resolve("abc-foo.jar.def.log"), 2);
+        Path used = write(Paths.get(jsZipCache.getEntryPath("abc", "used.jar")), 3);
+        jsZipCache.built(used.toString());
+        jsZipCache.evictAndWrite();
+
+        assertFalse(Files.exists(ownLog));
+        assertFalse(Files.exists(otherLog));
+        assertTrue(Files.isRegularFile(used));
+    }
+
+    /**
+     * Write a file of {@link #SIZE} bytes, last modified the given number of minutes after the epoch, so that the
+     * order of the accesses does not depend on the clock
+     * @param path
+     * @param minutes
+     * @return
+     * @throws IOException
+     */
+    private static Path write(Path path, int minutes) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[SIZE]);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(minutes * 60_000L));
+        return path;
+    }
+}
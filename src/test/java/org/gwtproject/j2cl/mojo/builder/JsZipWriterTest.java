@@ -0,0 +1,129 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the entries written by {@link JsZipWriter}, reading them back with <code>ZipFile</code>
+ */
+public class JsZipWriterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void smallEntriesAreStored() throws IOException {
+        byte[] small = randomContent(JsZipWriter.STORE_THRESHOLD);
+        byte[] big = randomContent(JsZipWriter.STORE_THRESHOLD + 1);
+        File target = folder.newFile("out.js.zip");
+        try (JsZipWriter jsZipWriter = new JsZipWriter(target, false)) {
+            jsZipWriter.addEntry("small.js", new ByteArrayInputStream(small), small.length);
+            jsZipWriter.addEntry("big.js", new ByteArrayInputStream(big), big.length);
+            jsZipWriter.addEntry("unknown.js", new ByteArrayInputStream(small), -1);
+        }
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("small.js").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("big.js").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("unknown.js").getMethod());
+            assertArrayEquals(small, read(zipFile, "small.js"));
+            assertArrayEquals(big, read(zipFile, "big.js"));
+            assertArrayEquals(small, read(zipFile, "unknown.js"));
+        }
+    }
+
+    @Test
+    public void allEntriesAreStoredIfRequested() throws IOException {
+        byte[] big = randomContent(64 * 1024);
+        File target = folder.newFile("out.stored.js.zip");
+        try (JsZipWriter jsZipWriter = new JsZipWriter(target, true)) {
+            jsZipWriter.addEntry("big.js", new ByteArrayInputStream(big), big.length);
+            jsZipWriter.addEntry("unknown.js", new ByteArrayInputStream(big), -1);
+        }
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("big.js").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("unknown.js").getMethod());
+            assertArrayEquals(big, read(zipFile, "unknown.js"));
+        }
+    }
+
+    @Test
+    public void firstEntryWins() throws IOException {
+        File target = folder.newFile("out.js.zip");
+        try (JsZipWriter jsZipWriter = new JsZipWriter(target, false)) {
+            assertTrue(jsZipWriter.addEntry("a.js", new ByteArrayInputStream(bytes("first")), 5));
+            assertFalse(jsZipWriter.addEntry("a.js", new ByteArrayInputStream(bytes("second")), 6));
+        }
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            assertEquals(1, zipFile.size());
+            assertArrayEquals(bytes("first"), read(zipFile, "a.js"));
+        }
+    }
+
+    @Test
+    public void directoriesAreAddedRelativeToTheirRoot() throws IOException {
+        Path root = folder.newFolder("js").toPath();
+        Files.createDirectories(root.resolve("org/foo"));
+        Files.write(root.resolve("org/foo/Bar.js"), bytes("bar"));
+        Files.write(root.resolve("Baz.js"), bytes("baz"));
+        File target = folder.newFile("out.js.zip");
+        try (JsZipWriter jsZipWriter = new JsZipWriter(target, false)) {
+            jsZipWriter.addEntry("Baz.js", new ByteArrayInputStream(bytes("existing")), 8);
+            jsZipWriter.addDirectory(root);
+        }
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            List<String> names = new ArrayList<>();
+            Collections.list(zipFile.entries()).forEach(entry -> names.add(entry.getName()));
+            assertEquals(Arrays.asList("Baz.js", "org/foo/Bar.js"), names);
+            assertArrayEquals(bytes("existing"), read(zipFile, "Baz.js"));
+            assertArrayEquals(bytes("bar"), read(zipFile, "org/foo/Bar.js"));
+        }
+    }
+
+    private static byte[] read(ZipFile zipFile, String name) throws IOException {
+        try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(name))) {
+            byte[] toReturn = new byte[(int) zipFile.getEntry(name).getSize()];
+            int offset = 0;
+            int read;
+            while (offset < toReturn.length && (read = inputStream.read(toReturn, offset, toReturn.length - offset)) != -1) {
+                offset += read;
+            }
+            assertEquals(-1, inputStream.read());
+            return toReturn;
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] randomContent(int size) {
+        byte[] toReturn = new byte[size];
+        new Random().nextBytes(toReturn);
+        return toReturn;
+    }
+}
@@ -0,0 +1,153 @@
+package org.gwtproject.j2cl.mojo.builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link RemoteJsZipCache} against a local file server stand-in, keeping the uploaded entries in memory
+ */
+public class RemoteJsZipCacheTest {
+
+    private static final String TOOLCHAIN = "j2cl=test;closure=test";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, byte[]> stored = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private String url;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/cache";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void storedEntriesAreFetched() throws IOException {
+        byte[] content = randomContent(256 * 1024);
+        File jszip = write("abc-foo.jar.js.zip", content);
+        new RemoteJsZipCache(url, TOOLCHAIN, true).store(jszip.getName(), jszip);
+
+        File target = new File(folder.getRoot(), "fetched.js.zip");
+        assertTrue(new RemoteJsZipCache(url, TOOLCHAIN, false).fetch(jszip.getName(), target));
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void entriesAreKeyedOnTheToolchain() throws IOException {
+        File jszip = write("abc-foo.jar.js.zip", randomContent(1024));
+        new RemoteJsZipCache(url, TOOLCHAIN, true).store(jszip.getName(), jszip);
+
+        String prefix = "/cache/" + DigestUtils.md5Hex(TOOLCHAIN) + "/";
+        assertTrue(stored.containsKey(prefix + jszip.getName()));
+        assertEquals(DigestUtils.md5Hex(Files.readAllBytes(jszip.toPath())), new String(stored.get(prefix + jszip.getName() + ".md5"), StandardCharsets.UTF_8));
+        assertFalse(new RemoteJsZipCache(url, TOOLCHAIN + ";jszip=stored", false).fetch(jszip.getName(), new File(folder.getRoot(), "other.js.zip")));
+    }
+
+    @Test
+    public void nothingIsStoredWithoutPush() throws IOException {
+        File jszip = write("abc-foo.jar.js.zip", randomContent(1024));
+        new RemoteJsZipCache(url, TOOLCHAIN, false).store(jszip.getName(), jszip);
+
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    public void missingEntriesAreMisses() {
+        File target = new File(folder.getRoot(), "missing.js.zip");
+        assertFalse(new RemoteJsZipCache(url, TOOLCHAIN, false).fetch("missing.js.zip", target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void corruptedEntriesAreDiscarded() throws IOException {
+        File jszip = write("abc-foo.jar.js.zip", randomContent(1024));
+        new RemoteJsZipCache(url, TOOLCHAIN, true).store(jszip.getName(), jszip);
+        stored.replaceAll((path, content) -> path.endsWith(".md5") ? content : randomContent(1024));
+
+        File target = new File(folder.getRoot(), "fetched.js.zip");
+        assertFalse(new RemoteJsZipCache(url, TOOLCHAIN, false).fetch(jszip.getName(), target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void unreachableServersAreMisses() throws IOException {
+        File jszip = write("abc-foo.jar.js.zip", randomContent(1024));
+        server.stop(0);
+
+        RemoteJsZipCache remoteJsZipCache = new RemoteJsZipCache(url, TOOLCHAIN, true);
+        remoteJsZipCache.store(jszip.getName(), jszip);
+        assertFalse(remoteJsZipCache.fetch(jszip.getName(), new File(folder.getRoot(), "fetched.js.zip")));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        try {
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                try (InputStream inputStream = exchange.getRequestBody()) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        content.write(buffer, 0, read);
+                    }
+                }
+                stored.put(path, content.toByteArray());
+                exchange.sendResponseHeaders(201, -1);
+            } else if ("GET".equals(exchange.getRequestMethod()) && stored.containsKey(path)) {
+                byte[] content = stored.get(path);
+                exchange.sendResponseHeaders(200, content.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(content);
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File toReturn = new File(folder.getRoot(), name);
+        Files.write(toReturn.toPath(), content);
+        return toReturn;
+    }
+
+    private static byte[] randomContent(int size) {
+        byte[] toReturn = new byte[size];
+        new Random().nextBytes(toReturn);
+        return toReturn;
+    }
+}
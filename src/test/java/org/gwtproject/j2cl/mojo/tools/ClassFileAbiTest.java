@@ -0,0 +1,135 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles small sources with the system compiler and checks which changes alter the ABI read by
+ * {@link ClassFileAbi}
+ */
+public class ClassFileAbiTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ClassFileAbi classFileAbi = new ClassFileAbi();
+
+    @Test
+    public void bodiesAndPrivateMembersAreNotPartOfTheAbi() throws IOException {
+        String abi = getAbi("Foo", "public class Foo { private int count; public int get() { return 1; } }");
+
+        assertEquals(abi, getAbi("Foo", "public class Foo { private String name; public int get() { return 2; } private void other() {} }"));
+    }
+
+    @Test
+    public void publicSignaturesArePartOfTheAbi() throws IOException {
+        String abi = getAbi("Foo", "public class Foo { public int get() { return 1; } }");
+
+        assertNotEquals(abi, getAbi("Foo", "public class Foo { public long get() { return 1; } }"));
+        assertNotEquals(abi, getAbi("Foo", "public class Foo { public int get() { return 1; } protected void other() {} }"));
+        assertNotEquals(abi, getAbi("Foo", "public class Foo implements java.io.Serializable { public int get() { return 1; } }"));
+    }
+
+    @Test
+    public void inlinedConstantsArePartOfTheAbi() throws IOException {
+        String abi = getAbi("Foo", "public class Foo { public static final int VALUE = 1; }");
+
+        assertNotEquals(abi, getAbi("Foo", "public class Foo { public static final int VALUE = 2; }"));
+    }
+
+    @Test
+    public void packagePrivateClassesHaveNoAbi() throws IOException {
+        assertEquals("", getAbi("Foo", "class Foo { public int get() { return 1; } }"));
+    }
+
+    @Test
+    public void nestedClassesVisibilityComesFromInnerClasses() throws IOException {
+        Path classes = compile("Foo", "public class Foo { protected static class Protected { public void run() {} } private static class Private { public void run() {} } }");
+
+        assertTrue(classFileAbi.getAbi(classes.resolve("Foo$Protected.class")).contains("Foo$Protected"));
+        assertEquals("", classFileAbi.getAbi(classes.resolve("Foo$Private.class")));
+    }
+
+    @Test
+    public void nestedClassesVisibilityChangesTheAbi() throws IOException {
+        String abi = classFileAbi.getAbi(compile("Foo", "public class Foo { public static class Nested {} }").resolve("Foo$Nested.class"));
+
+        assertNotEquals(abi, classFileAbi.getAbi(compile("Foo", "public class Foo { protected static class Nested {} }").resolve("Foo$Nested.class")));
+    }
+
+    @Test
+    public void sourceNamesIncludeSecondaryTopLevelTypes() throws IOException {
+        Path classes = compile("Foo", "public class Foo { class Inner {} } class Secondary {}");
+
+        assertEquals("Foo.java", classFileAbi.getSourceName(classes.resolve("Foo.class")));
+        assertEquals("Foo.java", classFileAbi.getSourceName(classes.resolve("Foo$Inner.class")));
+        assertEquals("Foo.java", classFileAbi.getSourceName(classes.resolve("Secondary.class")));
+    }
+
+    @Test
+    public void sourceNamesFallBackToTheOutermostClass() throws IOException {
+        Path classes = compile("Foo", "public class Foo { class Inner {} }", "-g:none");
+
+        assertEquals("Foo.java", classFileAbi.getSourceName(classes.resolve("Foo$Inner.class")));
+    }
+
+    @Test
+    public void fingerprintsIgnoreNonPublicClasses() throws IOException {
+        Path classes = compile("Foo", "public class Foo { public void run() {} } class Secondary {}");
+        String fingerprint = classFileAbi.fingerprint(Arrays.asList(classes.resolve("Foo.class"), classes.resolve("Secondary.class")));
+
+        assertEquals(fingerprint, classFileAbi.fingerprint(Arrays.asList(classes.resolve("Foo.class"))));
+    }
+
+    @Test
+    public void fingerprintsTellSameNamedClassesApart() throws IOException {
+        Path first = compile("a/Messages", "package a; public class Messages { public String hello() { return null; } }").resolve("a/Messages.class");
+        Path second = compile("b/Messages", "package b; public class Messages { public String bye() { return null; } }").resolve("b/Messages.class");
+        Path changed = compile("a/Messages", "package a; public class Messages { public String hello(String name) { return name; } }").resolve("a/Messages.class");
+        String fingerprint = classFileAbi.fingerprint(Arrays.asList(first, second));
+
+        assertNotEquals(fingerprint, classFileAbi.fingerprint(Arrays.asList(changed, second)));
+        assertEquals(fingerprint, classFileAbi.fingerprint(Arrays.asList(second, first)));
+    }
+
+    private String getAbi(String className, String source) throws IOException {
+        return classFileAbi.getAbi(compile(className, source).resolve(className + ".class"));
+    }
+
+    /**
+     * Compile the given source to a new directory
+     * @param className the path of the source relative to the directory, without extension (e.g. <code>a/Foo</code>)
+     * @param source
+     * @param options
+     * @return the directory of the class files
+     * @throws IOException
+     */
+    private Path compile(String className, String source, String... options) throws IOException {
+        File dir = folder.newFolder();
+        Path sourceFile = dir.toPath().resolve(className + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(Arrays.asList(options));
+        arguments.addAll(Arrays.asList("-d", dir.toString(), sourceFile.toString()));
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+        return dir.toPath();
+    }
+}
@@ -0,0 +1,131 @@
+package org.gwtproject.j2cl.mojo.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the dependents computed by {@link DependencyIndex} over a small graph:
+ * <code>C</code> references <code>B</code>, that references <code>A</code>; <code>D</code> references
+ * <code>A</code> too
+ */
+public class DependencyIndexTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DependencyIndex dependencyIndex;
+    private String a;
+    private String b;
+    private String c;
+    private String d;
+
+    @Before
+    public void setup() {
+        a = path("A");
+        b = path("B");
+        c = path("C");
+        d = path("D");
+        Map<String, DependencyIndex.Unit> units = new HashMap<>();
+        units.put(a, unit("abi-a", Collections.singleton("p.A"), Collections.singleton("java.lang.Object")));
+        units.put(b, unit("abi-b", Collections.singleton("p.B"), Collections.singleton("p.A")));
+        units.put(c, unit("abi-c", Collections.singleton("p.C"), Collections.singleton("p.B")));
+        units.put(d, unit("abi-d", Collections.singleton("p.D"), Arrays.asList("p.A", "p.Generated")));
+        dependencyIndex = new DependencyIndex();
+        dependencyIndex.update(units);
+    }
+
+    @Test
+    public void transitiveDependentsExcludeTheChangedSources() {
+        assertEquals(set(b, c, d), dependencyIndex.getTransitiveDependents(Collections.singleton(a)));
+        assertEquals(set(c), dependencyIndex.getTransitiveDependents(Collections.singleton(b)));
+        assertEquals(set(), dependencyIndex.getTransitiveDependents(Collections.singleton(c)));
+    }
+
+    @Test
+    public void referencingUnitsAreDirectOnly() {
+        assertEquals(set(b, d), dependencyIndex.getReferencingUnits(Collections.singleton("p.A")));
+        assertEquals(set(), dependencyIndex.getReferencingUnits(Collections.singleton("p.Unknown")));
+    }
+
+    @Test
+    public void dependenciesAbiHashFollowsTheReferencedAbi() {
+        String hash = dependencyIndex.getDependenciesAbiHash(b);
+        String unrelatedHash = dependencyIndex.getDependenciesAbiHash(c);
+
+        dependencyIndex.update(Collections.singletonMap(a, unit("abi-a2", Collections.singleton("p.A"), Collections.singleton("java.lang.Object"))));
+        assertNotEquals(hash, dependencyIndex.getDependenciesAbiHash(b));
+        assertEquals(unrelatedHash, dependencyIndex.getDependenciesAbiHash(c));
+        assertNull(dependencyIndex.getDependenciesAbiHash(path("Unknown")));
+    }
+
+    @Test
+    public void dependenciesAbiHashLooksUpOtherDeclaringUnits() {
+        DependencyIndex.Unit unit = dependencyIndex.get(d);
+        String hash = dependencyIndex.getDependenciesAbiHash(unit, Collections.singletonMap("p.Generated", unit("abi-g", Collections.singleton("p.Generated"), Collections.emptySet())));
+
+        assertNotEquals(hash, dependencyIndex.getDependenciesAbiHash(unit, Collections.singletonMap("p.Generated", unit("abi-g2", Collections.singleton("p.Generated"), Collections.emptySet()))));
+        assertEquals(hash, dependencyIndex.getDependenciesAbiHash(unit, Collections.singletonMap("p.Generated", unit("abi-g", Collections.singleton("p.Generated"), Collections.emptySet()))));
+    }
+
+    @Test
+    public void removedUnitsAreNotDependentsAnymore() {
+        dependencyIndex.remove(Collections.singleton(c));
+
+        assertEquals(set(b, d), dependencyIndex.getTransitiveDependents(Collections.singleton(a)));
+        assertNull(dependencyIndex.get(c));
+    }
+
+    @Test
+    public void missingSourcesAreReported() throws IOException {
+        File existing = folder.newFile("B.java");
+        dependencyIndex.update(Collections.singletonMap(existing.getPath(), unit("abi-b", Collections.singleton("p.B"), Collections.emptySet())));
+
+        assertEquals(set(a, c, d), dependencyIndex.getMissing());
+    }
+
+    @Test
+    public void writtenIndexesAreReadBack() throws IOException {
+        Path indexPath = folder.getRoot().toPath().resolve("index");
+        dependencyIndex.write(indexPath);
+        DependencyIndex read = DependencyIndex.read(indexPath);
+
+        assertEquals(set(b, c, d), read.getTransitiveDependents(Collections.singleton(a)));
+        assertEquals(dependencyIndex.getDependenciesAbiHash(d), read.getDependenciesAbiHash(d));
+        assertEquals("abi-c", read.get(c).getAbiHash());
+        assertTrue(DependencyIndex.read(folder.getRoot().toPath().resolve("missing")).isEmpty());
+    }
+
+    private String path(String name) {
+        return DependencyIndex.normalize(new File(folder.getRoot(), name + ".java").getPath());
+    }
+
+    private static DependencyIndex.Unit unit(String abiHash, Collection<String> declaredTypes, Collection<String> referencedTypes) {
+        DependencyIndex.Unit toReturn = new DependencyIndex.Unit();
+        toReturn.abiHash = abiHash;
+        toReturn.declaredTypes.addAll(declaredTypes);
+        toReturn.referencedTypes.addAll(referencedTypes);
+        return toReturn;
+    }
+
+    private static Set<String> set(String... paths) {
+        return new TreeSet<>(Arrays.asList(paths));
+    }
+}